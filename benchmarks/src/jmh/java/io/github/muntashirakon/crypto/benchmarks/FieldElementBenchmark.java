@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.github.muntashirakon.crypto.ed25519.Ed25519;
+import io.github.muntashirakon.crypto.ed25519.Ed25519Field;
+import io.github.muntashirakon.crypto.ed25519.FieldElement;
+
+/**
+ * Field arithmetic of both backends: the allocating operations, which return a new element, and their in-place
+ * counterparts, which write into a preallocated one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldElementBenchmark {
+    @Param({"RADIX_25_5", "RADIX_51"})
+    public Ed25519.FieldImplementation field;
+
+    private FieldElement a;
+    private FieldElement b;
+    private FieldElement out;
+
+    @Setup
+    public void setUp() {
+        Ed25519Field f = Ed25519.getSpec(field).getCurve().getField();
+        Random random = new Random(42);
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        a = f.fromByteArray(bytes);
+        random.nextBytes(bytes);
+        b = f.fromByteArray(bytes);
+        out = f.newElement();
+    }
+
+    @Benchmark
+    public FieldElement multiply() {
+        return a.multiply(b);
+    }
+
+    @Benchmark
+    public FieldElement multiplyInPlace() {
+        return out.setProduct(a, b);
+    }
+
+    @Benchmark
+    public FieldElement square() {
+        return a.square();
+    }
+
+    @Benchmark
+    public FieldElement squareInPlace() {
+        return out.setSquare(a);
+    }
+
+    @Benchmark
+    public FieldElement invert() {
+        return a.invert();
+    }
+
+    @Benchmark
+    public FieldElement invertInPlace() {
+        return out.setInverse(a);
+    }
+
+    @Benchmark
+    public FieldElement pow22523() {
+        return a.pow22523();
+    }
+
+    @Benchmark
+    public FieldElement pow22523InPlace() {
+        return out.setPow22523(a);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.github.muntashirakon.crypto.ed25519.Ed25519;
+import io.github.muntashirakon.crypto.ed25519.Ed25519Field;
+import io.github.muntashirakon.crypto.ed25519.FieldElement;
+
+/**
+ * Compares the {@link FieldElement#invert()} and {@link FieldElement#pow22523()} addition chains built on
+ * {@link FieldElement#setSquareN(FieldElement, int)} with the same chains issuing one squaring per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldInversionBenchmark {
+    @Param({"RADIX_25_5", "RADIX_51"})
+    public Ed25519.FieldImplementation field;
+
+    private Ed25519Field f;
+    private FieldElement z;
+    private FieldElement out;
+    private FieldElement t0;
+    private FieldElement t1;
+    private FieldElement t2;
+    private FieldElement t3;
+
+    @Setup
+    public void setUp() {
+        f = Ed25519.getSpec(field).getCurve().getField();
+        byte[] bytes = new byte[32];
+        new Random(42).nextBytes(bytes);
+        z = f.fromByteArray(bytes);
+        out = f.newElement();
+        t0 = f.newElement();
+        t1 = f.newElement();
+        t2 = f.newElement();
+        t3 = f.newElement();
+    }
+
+    @Benchmark
+    public FieldElement invert() {
+        return out.setInverse(z);
+    }
+
+    @Benchmark
+    public FieldElement invertSquareEach() {
+        t0.setSquare(z);
+        square(t1, t0, 2);
+        t1.setProduct(z, t1);
+        t0.setProduct(t0, t1);
+        t2.setSquare(t0);
+        t1.setProduct(t1, t2);
+        square(t2, t1, 5);
+        t1.setProduct(t2, t1);
+        square(t2, t1, 10);
+        t2.setProduct(t2, t1);
+        square(t3, t2, 20);
+        t2.setProduct(t3, t2);
+        square(t2, t2, 10);
+        t1.setProduct(t2, t1);
+        square(t2, t1, 50);
+        t2.setProduct(t2, t1);
+        square(t3, t2, 100);
+        t2.setProduct(t3, t2);
+        square(t2, t2, 50);
+        t1.setProduct(t2, t1);
+        square(t1, t1, 5);
+        return out.setProduct(t1, t0);
+    }
+
+    @Benchmark
+    public FieldElement pow22523() {
+        return out.setPow22523(z);
+    }
+
+    @Benchmark
+    public FieldElement pow22523SquareEach() {
+        t0.setSquare(z);
+        square(t1, t0, 2);
+        t1.setProduct(z, t1);
+        t0.setProduct(t0, t1);
+        t0.setSquare(t0);
+        t0.setProduct(t1, t0);
+        square(t1, t0, 5);
+        t0.setProduct(t1, t0);
+        square(t1, t0, 10);
+        t1.setProduct(t1, t0);
+        square(t2, t1, 20);
+        t1.setProduct(t2, t1);
+        square(t1, t1, 10);
+        t0.setProduct(t1, t0);
+        square(t1, t0, 50);
+        t1.setProduct(t1, t0);
+        square(t2, t1, 100);
+        t1.setProduct(t2, t1);
+        square(t1, t1, 50);
+        t0.setProduct(t1, t0);
+        square(t0, t0, 2);
+        return out.setProduct(z, t0);
+    }
+
+    /**
+     * The previous shape of the chains: h = f^(2^n) with one call per squaring.
+     */
+    private static void square(FieldElement h, FieldElement f, int n) {
+        h.setSquare(f);
+        for (int i = 1; i < n; ++i) {
+            h.setSquare(h);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.github.muntashirakon.crypto.ed25519.Curve;
+import io.github.muntashirakon.crypto.ed25519.Ed25519;
+import io.github.muntashirakon.crypto.ed25519.GroupElement;
+
+/**
+ * Point decoding and the scalar multiplications, see also {@link ScalarMultiplyBenchmark} for the different shapes of
+ * the fixed-base multiplication.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroupElementBenchmark {
+    @Param({"RADIX_25_5", "RADIX_51"})
+    public Ed25519.FieldImplementation field;
+
+    private Curve curve;
+    private GroupElement B;
+    /**
+     * A random point, precomputed for the double scalar multiplication
+     */
+    private GroupElement A;
+    private byte[] encodedA;
+    private byte[] a;
+    private byte[] b;
+
+    @Setup
+    public void setUp() {
+        B = Ed25519.getSpec(field).getB();
+        curve = B.getCurve();
+        Random random = new Random(42);
+        a = randomScalar(random);
+        b = randomScalar(random);
+        encodedA = B.scalarMultiply(randomScalar(random)).toByteArray();
+        A = curve.createPoint(encodedA, true);
+    }
+
+    @Benchmark
+    public GroupElement fromBytesNegateVarTime() {
+        return curve.fromBytesNegateVarTime(encodedA);
+    }
+
+    @Benchmark
+    public GroupElement scalarMultiply() {
+        return B.scalarMultiply(a);
+    }
+
+    @Benchmark
+    public GroupElement scalarMultiplyVariableBase() {
+        return A.scalarMultiplyVariableBase(a);
+    }
+
+    @Benchmark
+    public GroupElement doubleScalarMultiplyVariableTime() {
+        return B.doubleScalarMultiplyVariableTime(A, a, b);
+    }
+
+    private static byte[] randomScalar(Random random) {
+        byte[] s = new byte[32];
+        random.nextBytes(s);
+        s[31] &= 0x0F;
+        return s;
+    }
+}
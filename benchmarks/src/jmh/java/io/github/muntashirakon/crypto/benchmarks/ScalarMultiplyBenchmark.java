@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.github.muntashirakon.crypto.ed25519.Curve;
+import io.github.muntashirakon.crypto.ed25519.Ed25519;
+import io.github.muntashirakon.crypto.ed25519.FixedBaseMultiplier;
+import io.github.muntashirakon.crypto.ed25519.GroupElement;
+import io.github.muntashirakon.crypto.ed25519.PointWorkspace;
+import io.github.muntashirakon.crypto.ed25519.Utils;
+
+/**
+ * Compares {@link GroupElement#scalarMultiply(byte[])}, whose table lookups write into a scratch point, with the same
+ * algorithm using the previous lookups, which chain {@link GroupElement#cmov(GroupElement, int)} and allocate a new
+ * point for every entry of the row, and with {@link GroupElement#scalarMultiply(byte[], PointWorkspace)}, which reuses
+ * a workspace. Run with {@code -prof gc} to compare the allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScalarMultiplyBenchmark {
+    @Param({"RADIX_25_5", "RADIX_51"})
+    public Ed25519.FieldImplementation field;
+
+    private GroupElement B;
+    private Curve curve;
+    /**
+     * Same entries as the table of B: $(j+1) 16^{2i} B$ at [i][j]
+     */
+    private GroupElement[][] precmp;
+    private byte[] a;
+    private PointWorkspace workspace;
+
+    @Setup
+    public void setUp() {
+        B = Ed25519.getSpec(field).getB();
+        curve = B.getCurve();
+        GroupElement[] entries = new FixedBaseMultiplier(B, 4, 2).getTable().toArray();
+        precmp = new GroupElement[32][8];
+        for (int i = 0; i < 32; i++) {
+            System.arraycopy(entries, i * 8, precmp[i], 0, 8);
+        }
+        a = new byte[32];
+        new Random(42).nextBytes(a);
+        a[31] &= 0x7F;
+        workspace = new PointWorkspace(curve);
+    }
+
+    @Benchmark
+    public GroupElement scalarMultiply() {
+        return B.scalarMultiply(a);
+    }
+
+    @Benchmark
+    public PointWorkspace scalarMultiplyWorkspace() {
+        B.scalarMultiply(a, workspace);
+        return workspace;
+    }
+
+    @Benchmark
+    public GroupElement scalarMultiplyCmovChain() {
+        final byte[] e = toRadix16(a);
+        GroupElement h = curve.getZero(GroupElement.Representation.P3);
+        for (int i = 1; i < 64; i += 2) {
+            h = h.madd(select(i / 2, e[i])).toP3();
+        }
+        h = h.dbl().toP2().dbl().toP2().dbl().toP2().dbl().toP3();
+        for (int i = 0; i < 64; i += 2) {
+            h = h.madd(select(i / 2, e[i])).toP3();
+        }
+        return h;
+    }
+
+    /**
+     * The previous shape of the lookup.
+     */
+    private GroupElement select(final int pos, final int b) {
+        final int bnegative = Utils.negative(b);
+        final int babs = b - (((-bnegative) & b) << 1);
+        final GroupElement t = curve.getZero(GroupElement.Representation.PRECOMP)
+                .cmov(precmp[pos][0], Utils.equal(babs, 1))
+                .cmov(precmp[pos][1], Utils.equal(babs, 2))
+                .cmov(precmp[pos][2], Utils.equal(babs, 3))
+                .cmov(precmp[pos][3], Utils.equal(babs, 4))
+                .cmov(precmp[pos][4], Utils.equal(babs, 5))
+                .cmov(precmp[pos][5], Utils.equal(babs, 6))
+                .cmov(precmp[pos][6], Utils.equal(babs, 7))
+                .cmov(precmp[pos][7], Utils.equal(babs, 8));
+        final GroupElement tminus = GroupElement.precomp(curve, t.getY(), t.getX(), t.getZ().negate());
+        return t.cmov(tminus, bnegative);
+    }
+
+    private static byte[] toRadix16(final byte[] a) {
+        final byte[] e = new byte[64];
+        for (int i = 0; i < 32; i++) {
+            e[2 * i] = (byte) (a[i] & 15);
+            e[2 * i + 1] = (byte) ((a[i] >> 4) & 15);
+        }
+        int carry = 0;
+        for (int i = 0; i < 63; i++) {
+            e[i] += carry;
+            carry = e[i] + 8;
+            carry >>= 4;
+            e[i] -= carry << 4;
+        }
+        e[63] += carry;
+        return e;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.github.muntashirakon.crypto.ed25519.Ed25519;
+import io.github.muntashirakon.crypto.ed25519.Ed25519ScalarOps;
+
+/**
+ * Arithmetic modulo the group order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScalarOpsBenchmark {
+    private Ed25519ScalarOps scalarOps;
+    private byte[] wide;
+    private byte[] a;
+    private byte[] b;
+    private byte[] c;
+
+    @Setup
+    public void setUp() {
+        scalarOps = Ed25519.getSpec().getScalarOps();
+        Random random = new Random(42);
+        wide = new byte[64];
+        random.nextBytes(wide);
+        a = scalarOps.reduce(wide);
+        random.nextBytes(wide);
+        b = scalarOps.reduce(wide);
+        random.nextBytes(wide);
+        c = scalarOps.reduce(wide);
+        random.nextBytes(wide);
+    }
+
+    @Benchmark
+    public byte[] reduce() {
+        return scalarOps.reduce(wide);
+    }
+
+    @Benchmark
+    public byte[] multiplyAndAdd() {
+        return scalarOps.multiplyAndAdd(a, b, c);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import io.github.muntashirakon.crypto.spake2.Spake2Context;
+import io.github.muntashirakon.crypto.spake2.Spake2Role;
+
+/**
+ * Latency of one side of a handshake through {@link Spake2Context#generateMessageAsync(byte[])} and
+ * {@link Spake2Context#processMessageAsync(byte[])}, the peer's message being ready. The benchmark threads stand for
+ * connections: as there are more of them than executor threads, the executor is saturated and the latencies include
+ * the time spent in its queue, see the percentiles. Run with {@code -t} to change the load.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class Spake2AsyncBenchmark {
+    private static final byte[] ALICE = "alice".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BOB = "bob".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PASSWORD = "password".getBytes(StandardCharsets.UTF_8);
+
+    @State(Scope.Benchmark)
+    public static class CryptoExecutor {
+        @Param({"1", "2"})
+        public int executorThreads;
+
+        ExecutorService executor;
+        byte[] bobMsg;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            // Never full, each connection has at most one operation queued
+            executor = Spake2Context.newAsyncExecutor(executorThreads, 1024);
+            bobMsg = new Spake2Context(Spake2Role.Bob, BOB, ALICE).generateMessage(PASSWORD);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            executor.shutdown();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Connection {
+        Spake2Context alice;
+
+        @Setup(Level.Trial)
+        public void setUp(CryptoExecutor cryptoExecutor) {
+            alice = new Spake2Context(Spake2Role.Alice, ALICE, BOB);
+            alice.setAsyncExecutor(cryptoExecutor.executor);
+        }
+    }
+
+    @Benchmark
+    public byte[] handshake(CryptoExecutor cryptoExecutor, Connection connection) {
+        Spake2Context alice = connection.alice;
+        alice.reset(Spake2Role.Alice, ALICE, BOB);
+        return alice.generateMessageAsync(PASSWORD)
+                .thenCompose(msg -> alice.processMessageAsync(cryptoExecutor.bobMsg))
+                .join();
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import io.github.muntashirakon.crypto.ed25519.Ed25519;
+import io.github.muntashirakon.crypto.ed25519.Utils;
+import io.github.muntashirakon.crypto.spake2.EntropySource;
+import io.github.muntashirakon.crypto.spake2.EphemeralPool;
+import io.github.muntashirakon.crypto.spake2.Spake2Context;
+import io.github.muntashirakon.crypto.spake2.Spake2Role;
+
+/**
+ * The two steps of a SPAKE2 handshake, as seen by one side. A context can only be used once, so a fresh one is set up
+ * before every invocation, outside of the measurement.
+ * <p>
+ * {@link Fresh#entropy} selects the source of the ephemeral keys: the default per-thread buffered one, a new
+ * {@link SecureRandom} per handshake as before, or fixed bytes for reproducible runs.
+ * {@link #generateMessagePooled(Pooled)} takes the ephemeral keys from an {@link EphemeralPool} instead. It is deep
+ * enough for a whole measurement iteration, so that it shows the latency of the remaining critical path.
+ * <p>
+ * {@link MessageSent#peerMask} selects when the peer's mask is computed, see {@link Spake2Context.PeerMaskMode}.
+ * A round trip of {@link MessageSent#roundTripMillis} is simulated between the two steps.
+ * <p>
+ * The field backend is the default one, select another with
+ * {@code -jvmArgsAppend -Dio.github.muntashirakon.crypto.ed25519.field=radix_25_5}.
+ *
+ * @see Ed25519#FIELD_IMPLEMENTATION_PROPERTY
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Spake2ContextBenchmark {
+    private static final byte[] ALICE = "alice".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BOB = "bob".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PASSWORD = "password".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ALICE_KEY = Utils.hexToBytes("47f6c458e5f062db8427d2d9bb20c954a76d6943959756a1" +
+            "8d11d45e1ad190f980a86d185a93ca1d3025c5febe3aac4045b34a39b1f511385ca97fc4332137f3");
+    private static final byte[] BOB_KEY = Utils.hexToBytes("a6bf9f9bf7819e0ded8c2dd82a1aa38acb2f8a6403429cff" +
+            "33d64ea9c40439d5fd7029811a5f5a8f7c89c8b44ac0b421f6b24ca2ba18d2069995831730cd8c5a");
+
+    @State(Scope.Thread)
+    public static class Fresh {
+        @Param({"default", "newSecureRandom", "fixed"})
+        public String entropy;
+
+        EntropySource entropySource;
+        Spake2Context alice;
+
+        @Setup(Level.Trial)
+        public void setUpEntropy() {
+            switch (entropy) {
+                case "newSecureRandom":
+                    entropySource = bytes -> new SecureRandom().nextBytes(bytes);
+                    break;
+                case "fixed":
+                    entropySource = EntropySource.fixed(ALICE_KEY);
+                    break;
+                default:
+                    entropySource = EntropySource.getDefault();
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            alice = new Spake2Context(Spake2Role.Alice, ALICE, BOB, entropySource);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class MessageSent {
+        @Param({"INLINE", "EAGER", "CONCURRENT"})
+        public Spake2Context.PeerMaskMode peerMask;
+        @Param({"1"})
+        public long roundTripMillis;
+
+        ExecutorService executor;
+        byte[] bobMsg;
+        Spake2Context alice;
+
+        @Setup(Level.Trial)
+        public void setUpPeer() {
+            executor = Executors.newSingleThreadExecutor();
+            bobMsg = new Spake2Context(Spake2Role.Bob, BOB, ALICE, EntropySource.fixed(BOB_KEY))
+                    .generateMessage(PASSWORD);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDownPeer() {
+            executor.shutdown();
+        }
+
+        @Setup(Level.Invocation)
+        public void setUp() throws InterruptedException {
+            alice = new Spake2Context(Spake2Role.Alice, ALICE, BOB, EntropySource.fixed(ALICE_KEY));
+            alice.setPeerMaskMode(peerMask, executor);
+            alice.generateMessage(PASSWORD);
+            Thread.sleep(roundTripMillis);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Pooled {
+        EphemeralPool pool;
+        Spake2Context alice;
+
+        @Setup(Level.Iteration)
+        public void setUpPool() throws InterruptedException {
+            // Enough for a one-second iteration, so that it is never refilled while measuring
+            pool = new EphemeralPool(1 << 14, 0);
+            while (pool.size() < pool.getDepth()) {
+                Thread.sleep(100);
+            }
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDownPool() {
+            pool.destroy();
+        }
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            alice = new Spake2Context(Spake2Role.Alice, ALICE, BOB);
+            alice.setEphemeralPool(pool);
+        }
+    }
+
+    @Benchmark
+    public byte[] generateMessage(Fresh state) {
+        return state.alice.generateMessage(PASSWORD);
+    }
+
+    @Benchmark
+    public byte[] generateMessagePooled(Pooled state) {
+        return state.alice.generateMessage(PASSWORD);
+    }
+
+    @Benchmark
+    public byte[] processMessage(MessageSent state) {
+        return state.alice.processMessage(state.bobMsg);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import io.github.muntashirakon.crypto.ed25519.Utils;
+import io.github.muntashirakon.crypto.spake2.Spake2Context;
+import io.github.muntashirakon.crypto.spake2.Spake2Handshake;
+import io.github.muntashirakon.crypto.spake2.Spake2Identity;
+import io.github.muntashirakon.crypto.spake2.Spake2Password;
+import io.github.muntashirakon.crypto.spake2.Spake2Role;
+
+/**
+ * Throughput of complete handshakes, both sides in the same thread. {@link #handshakeTraced(Traced)} installs a tracer
+ * printing the intermediate values to {@code System.out}, as every handshake used to do. Run with {@code -t} to see
+ * how the threads contend on the console. {@link #handshakeReset(Reused)} reuses the same two contexts, run with
+ * {@code -prof gc} to compare the allocation rates. {@link #handshakeDerivedPassword(Derived)} shares a
+ * {@link Spake2Password} derived once, with its masks. {@link #handshakeLongNames(LongNames)} and
+ * {@link #handshakeLongNamesIdentity(LongNames)} compare hashing long names for each handshake with hashing them once
+ * in a {@link Spake2Identity}. {@link #handshakeCodec()} goes through two {@link Spake2Handshake}s, running their
+ * delegated tasks inline, to compare with {@link #handshake()}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Spake2HandshakeBenchmark {
+    private static final byte[] ALICE = "alice".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BOB = "bob".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PASSWORD = "password".getBytes(StandardCharsets.UTF_8);
+
+    @State(Scope.Benchmark)
+    public static class Traced {
+        @Setup
+        public void setUp() {
+            Spake2Context.setTracer((role, value, bytes) ->
+                    System.out.printf("%s(%s): %s%n", value, role, Utils.bytesToHex(bytes)));
+        }
+
+        @TearDown
+        public void tearDown() {
+            Spake2Context.setTracer(null);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Reused {
+        final Spake2Context alice = new Spake2Context(Spake2Role.Alice, ALICE, BOB);
+        final Spake2Context bob = new Spake2Context(Spake2Role.Bob, BOB, ALICE);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Derived {
+        final Spake2Password password = Spake2Password.of(PASSWORD);
+    }
+
+    @State(Scope.Thread)
+    public static class LongNames {
+        @Param({"4096"})
+        public int nameLength;
+
+        byte[] aliceName;
+        byte[] bobName;
+        Spake2Identity aliceIdentity;
+        Spake2Identity bobIdentity;
+        Spake2Context alice;
+        Spake2Context bob;
+
+        @Setup
+        public void setUp() {
+            aliceName = new byte[nameLength];
+            bobName = new byte[nameLength];
+            Arrays.fill(aliceName, (byte) 'a');
+            Arrays.fill(bobName, (byte) 'b');
+            aliceIdentity = new Spake2Identity(Spake2Role.Alice, aliceName, bobName);
+            bobIdentity = new Spake2Identity(Spake2Role.Bob, bobName, aliceName);
+            alice = new Spake2Context(aliceIdentity);
+            bob = new Spake2Context(bobIdentity);
+        }
+    }
+
+    @Benchmark
+    public byte[] handshake() {
+        return run();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-D" + Spake2Context.TRACE_PROPERTY + "=true")
+    public byte[] handshakeTraced(Traced traced) {
+        return run();
+    }
+
+    @Benchmark
+    public byte[] handshakeReset(Reused reused) {
+        reused.alice.reset(Spake2Role.Alice, ALICE, BOB);
+        reused.bob.reset(Spake2Role.Bob, BOB, ALICE);
+        return run(reused.alice, reused.bob);
+    }
+
+    @Benchmark
+    public byte[] handshakeDerivedPassword(Reused reused, Derived derived) {
+        Spake2Context alice = reused.alice;
+        Spake2Context bob = reused.bob;
+        alice.reset(Spake2Role.Alice, ALICE, BOB);
+        bob.reset(Spake2Role.Bob, BOB, ALICE);
+        byte[] aliceMsg = alice.generateMessage(derived.password);
+        byte[] bobMsg = bob.generateMessage(derived.password);
+        bob.processMessage(aliceMsg);
+        return alice.processMessage(bobMsg);
+    }
+
+    @Benchmark
+    public byte[] handshakeLongNames(LongNames names) {
+        names.alice.reset(Spake2Role.Alice, names.aliceName, names.bobName);
+        names.bob.reset(Spake2Role.Bob, names.bobName, names.aliceName);
+        return run(names.alice, names.bob);
+    }
+
+    @Benchmark
+    public byte[] handshakeLongNamesIdentity(LongNames names) {
+        names.alice.reset(names.aliceIdentity);
+        names.bob.reset(names.bobIdentity);
+        return run(names.alice, names.bob);
+    }
+
+    @Benchmark
+    public byte[] handshakeCodec() {
+        Spake2Handshake alice = new Spake2Handshake(new Spake2Context(Spake2Role.Alice, ALICE, BOB), PASSWORD);
+        Spake2Handshake bob = new Spake2Handshake(new Spake2Context(Spake2Role.Bob, BOB, ALICE), PASSWORD);
+        ByteBuffer aliceToBob = ByteBuffer.allocate(Spake2Context.MAX_MSG_SIZE);
+        ByteBuffer bobToAlice = ByteBuffer.allocate(Spake2Context.MAX_MSG_SIZE);
+        alice.getDelegatedTask().run();
+        bob.getDelegatedTask().run();
+        alice.wrap(aliceToBob);
+        bob.wrap(bobToAlice);
+        aliceToBob.flip();
+        bobToAlice.flip();
+        bob.unwrap(aliceToBob);
+        alice.unwrap(bobToAlice);
+        bob.getDelegatedTask().run();
+        alice.getDelegatedTask().run();
+        return alice.getKey();
+    }
+
+    private static byte[] run() {
+        return run(new Spake2Context(Spake2Role.Alice, ALICE, BOB), new Spake2Context(Spake2Role.Bob, BOB, ALICE));
+    }
+
+    private static byte[] run(Spake2Context alice, Spake2Context bob) {
+        byte[] aliceMsg = alice.generateMessage(PASSWORD);
+        byte[] bobMsg = bob.generateMessage(PASSWORD);
+        bob.processMessage(aliceMsg);
+        return alice.processMessage(bobMsg);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import io.github.muntashirakon.crypto.spake2.Spake2Context;
+import io.github.muntashirakon.crypto.spake2.Spake2Role;
+
+/**
+ * Wall-clock latency of one side of a handshake, both steps, the peer's message being ready. {@link #executor}
+ * selects where the low-latency mode of {@link Spake2Context#setLowLatencyExecutor(java.util.concurrent.Executor)}
+ * runs the masks: nowhere, on a dedicated thread, or on the common {@link ForkJoinPool}. Only meaningful on a machine
+ * with at least two idle cores. Reports the distribution of the latencies, see the percentiles.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class Spake2LatencyBenchmark {
+    private static final byte[] ALICE = "alice".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BOB = "bob".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PASSWORD = "password".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"none", "dedicatedThread", "forkJoinPool"})
+    public String executor;
+
+    private ExecutorService dedicated;
+    private byte[] bobMsg;
+    private Spake2Context alice;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bobMsg = new Spake2Context(Spake2Role.Bob, BOB, ALICE).generateMessage(PASSWORD);
+        alice = new Spake2Context(Spake2Role.Alice, ALICE, BOB);
+        switch (executor) {
+            case "dedicatedThread":
+                dedicated = Executors.newSingleThreadExecutor();
+                alice.setLowLatencyExecutor(dedicated);
+                break;
+            case "forkJoinPool":
+                alice.setLowLatencyExecutor(ForkJoinPool.commonPool());
+                break;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (dedicated != null) {
+            dedicated.shutdown();
+        }
+    }
+
+    @Benchmark
+    public byte[] handshake() {
+        alice.reset(Spake2Role.Alice, ALICE, BOB);
+        alice.generateMessage(PASSWORD);
+        return alice.processMessage(bobMsg);
+    }
+}
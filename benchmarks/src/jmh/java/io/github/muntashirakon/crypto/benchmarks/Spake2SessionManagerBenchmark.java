@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.github.muntashirakon.crypto.spake2.Spake2Context;
+import io.github.muntashirakon.crypto.spake2.Spake2Identity;
+import io.github.muntashirakon.crypto.spake2.Spake2Password;
+import io.github.muntashirakon.crypto.spake2.Spake2Role;
+import io.github.muntashirakon.crypto.spake2.Spake2SessionManager;
+
+/**
+ * Throughput of the server side of complete sessions through a shared {@link Spake2SessionManager}, the clients'
+ * message being ready. Run with {@code -t} set to the number of cores to see how it scales.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Spake2SessionManagerBenchmark {
+    private static final byte[] CLIENT = "client".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SERVER = "server".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PASSWORD = "password".getBytes(StandardCharsets.UTF_8);
+
+    @State(Scope.Benchmark)
+    public static class Server {
+        final AtomicLong threads = new AtomicLong();
+        Spake2SessionManager<Long> manager;
+        Spake2Password password;
+        byte[] clientMsg;
+
+        @Setup
+        public void setUp() {
+            manager = new Spake2SessionManager<>(new Spake2Identity(Spake2Role.Bob, SERVER, CLIENT), 4096, 30_000);
+            password = Spake2Password.of(PASSWORD);
+            clientMsg = new Spake2Context(Spake2Role.Alice, CLIENT, SERVER).generateMessage(PASSWORD);
+        }
+
+        @TearDown
+        public void tearDown() {
+            manager.destroy();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Connections {
+        long nextId;
+
+        @Setup
+        public void setUp(Server server) {
+            // Disjoint identifiers per thread
+            nextId = server.threads.getAndIncrement() << 40;
+        }
+    }
+
+    @Benchmark
+    public byte[] session(Server server, Connections connections) {
+        Long id = connections.nextId++;
+        server.manager.begin(id, server.password);
+        return server.manager.complete(id, server.clientMsg);
+    }
+}
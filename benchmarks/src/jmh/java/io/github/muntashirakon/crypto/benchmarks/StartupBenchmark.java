@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.TimeUnit;
+
+import io.github.muntashirakon.crypto.ed25519.Ed25519;
+
+/**
+ * Cold-start cost of the class initialization of {@code Ed25519}, up to the curve parameters of the default field
+ * backend with the table of the base point, and of {@code Spake2Context}, which pulls in the curve parameters and all
+ * the precomputed tables. Each fork measures a single initialization in a fresh JVM. The classes are loaded by a
+ * separate class loader. When {@link #bundledTables} is false, it hides the {@code .tables} resources, so that the
+ * tables are computed during the initialization instead of being read.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+    private static final String TABLES_SUFFIX = ".tables";
+    private static final String ED25519 = "io.github.muntashirakon.crypto.ed25519.Ed25519";
+
+    @Param({"true", "false"})
+    public boolean bundledTables;
+
+    private ClassLoader loader;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        URL location = Ed25519.class.getProtectionDomain().getCodeSource().getLocation();
+        loader = new URLClassLoader(new URL[]{location}, null) {
+            @Override
+            public URL findResource(String name) {
+                return bundledTables || !name.endsWith(TABLES_SUFFIX) ? super.findResource(name) : null;
+            }
+        };
+    }
+
+    @Benchmark
+    public Object initializeEd25519() throws ReflectiveOperationException {
+        // The curve parameters are initialized lazily, on the first call to getSpec()
+        return Class.forName(ED25519, true, loader).getMethod("getSpec").invoke(null);
+    }
+
+    @Benchmark
+    public Class<?> initializeSpake2Context() throws ClassNotFoundException {
+        return Class.forName("io.github.muntashirakon.crypto.spake2.Spake2Context", true, loader);
+    }
+}
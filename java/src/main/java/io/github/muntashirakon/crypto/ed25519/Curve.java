@@ -23,6 +23,7 @@ public class Curve implements Serializable {
     private final GroupElement zeroP3;
     private final GroupElement zeroP3PrecomputedDouble;
     private final GroupElement zeroPrecomp;
+    private final GroupElement zeroCached;
 
     public Curve(Ed25519Field f, byte[] d, FieldElement I) {
         this.f = f;
@@ -36,6 +37,7 @@ public class Curve implements Serializable {
         zeroP3 = GroupElement.p3(this, zero, one, one, zero, false);
         zeroP3PrecomputedDouble = GroupElement.p3(this, zero, one, one, zero, true);
         zeroPrecomp = GroupElement.precomp(this, one, one, zero);
+        zeroCached = GroupElement.cached(this, one, one, one, zero);
     }
 
     public Ed25519Field getField() {
@@ -64,6 +66,8 @@ public class Curve implements Serializable {
             return zeroP3PrecomputedDouble;
         case PRECOMP:
             return zeroPrecomp;
+        case CACHED:
+            return zeroCached;
         default:
             return null;
         }
@@ -74,36 +78,8 @@ public class Curve implements Serializable {
     }
 
     public GroupElement fromBytesNegateVarTime(final byte[] s) {
-        FieldElement Y = f.fromByteArray(s);
-        FieldElement Z = f.ONE;
-        FieldElement y2 = Y.square();
-        FieldElement dy2 = y2.multiply(d);
-        FieldElement u = y2.subtract(Z); // u = y^2-1
-        FieldElement v = dy2.add(Z); // v = dy^2+1
-
-        FieldElement v3 = v.square().multiply(v); // v3 = v^3
-        FieldElement uv7 = v3.square().multiply(v).multiply(u);  // x = uv^7
-
-        FieldElement X = uv7.pow22523(); // x = (uv^7)^((q-5)/8)
-        X = X.multiply(v3).multiply(u); // x = uv^3(uv^7)^((q-5)/8)
-
-        FieldElement vx2 = X.square().multiply(v); // vx^2
-        FieldElement check = vx2.subtract(u); // vx^2 - u
-        if (check.isNonZero()) {
-            check = vx2.add(u);  // vx^2 + u
-            if (check.isNonZero()) {
-                return null;
-            }
-            X = X.multiply(I);  // x = iuv^3(uv^7)^((q-5)/8)
-        }
-
-        int isNegative = X.isNegative() ? 1 : 0;
-        if (isNegative != (s[31] >>> 7)) {
-            X = X.negate(); // x = -iuv^3(uv^7)^((q-5)/8)
-        }
-
-        FieldElement T = X.multiply(Y);  // t = [-]yiuv^3(uv^7)^((q-5)/8)
-        return GroupElement.p3(this, X, Y, Z, T);
+        PointWorkspace ws = new PointWorkspace(this);
+        return ws.setFromBytesNegateVarTime(s) ? ws.get(GroupElement.Representation.P3) : null;
     }
 
     @Override
@@ -6,26 +6,142 @@
 
 package io.github.muntashirakon.crypto.ed25519;
 
+import java.util.Arrays;
+import java.util.Locale;
+
 public class Ed25519 {
-    private static final Ed25519Field ed25519field = new Ed25519Field(
-                    256, // b
-                    Utils.hexToBytes("edffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff7f"), // q
-                    new Ed25519LittleEndianEncoding());
-
-    private static final Curve ed25519curve = new Curve(ed25519field,
-            Utils.hexToBytes("a3785913ca4deb75abd841414d0a700098e879777940c78c73fe6f2bee6c0352"), // d
-            ed25519field.fromByteArray(Utils.hexToBytes("b0a00e4a271beec478e42fad0618432fa7d7fb3d99004d2b0bdfc14f8024832b"))); // I
-
-    // RFC 8032
-    private static final Ed25519CurveParameterSpec ED_25519_CURVE_SPEC = new Ed25519CurveParameterSpec(
-            ed25519curve,
-            "SHA-512", // H
-            new Ed25519ScalarOps(), // l
-            ed25519curve.createPoint( // B
-                    Utils.hexToBytes("5866666666666666666666666666666666666666666666666666666666666666"),
-                    true)); // Precompute tables for B
+    /**
+     * System property to override the default {@link FieldImplementation}, e.g.
+     * {@code -Dio.github.muntashirakon.crypto.ed25519.field=radix_25_5}. Unknown values are ignored.
+     */
+    public static final String FIELD_IMPLEMENTATION_PROPERTY = "io.github.muntashirakon.crypto.ed25519.field";
+
+    /**
+     * Limb representation of the field elements. Both produce identical encodings.
+     */
+    public enum FieldImplementation {
+        /**
+         * Ten 25.5-bit limbs in {@code int}, see {@link Ed25519FieldElement}. Suited to 32-bit platforms.
+         */
+        RADIX_25_5,
+        /**
+         * Five 51-bit limbs in {@code long}, see {@link Ed25519FieldElement51}. Suited to 64-bit platforms.
+         */
+        RADIX_51,
+    }
+
+    /**
+     * Resource holding the tables of the base point, see {@link PrecomputedTables}
+     */
+    static final String BASE_POINT_TABLES = "ed25519-base-point.tables";
+
+    private static final FieldImplementation DEFAULT_FIELD_IMPLEMENTATION = findDefaultFieldImplementation();
+
+    private static Ed25519CurveParameterSpec createSpec(Ed25519LittleEndianEncoding encoding) {
+        Ed25519Field ed25519field = new Ed25519Field(
+                256, // b
+                Utils.hexToBytes("edffffffffffffffffffffffffffffffffffffffffffffffffffffffffffff7f"), // q
+                encoding);
 
+        Curve ed25519curve = new Curve(ed25519field,
+                Utils.hexToBytes("a3785913ca4deb75abd841414d0a700098e879777940c78c73fe6f2bee6c0352"), // d
+                ed25519field.fromByteArray(Utils.hexToBytes("b0a00e4a271beec478e42fad0618432fa7d7fb3d99004d2b0bdfc14f8024832b"))); // I
+
+        // RFC 8032
+        return new Ed25519CurveParameterSpec(
+                ed25519curve,
+                "SHA-512", // H
+                new Ed25519ScalarOps(), // l
+                createBasePoint(ed25519curve,
+                        Utils.hexToBytes("5866666666666666666666666666666666666666666666666666666666666666"))); // B
+    }
+
+    /**
+     * Creates the base point with its tables for {@link GroupElement#scalarMultiply(byte[])} and
+     * {@link GroupElement#doubleScalarMultiplyVariableTime(GroupElement, byte[], byte[])}. The tables are read from
+     * {@value #BASE_POINT_TABLES}, which is generated at build time, and only computed if it is not available, e.g.
+     * when running from the sources.
+     */
+    static GroupElement createBasePoint(Curve curve, byte[] encoded) {
+        byte[] tables = PrecomputedTables.read(Ed25519.class, BASE_POINT_TABLES, 32 * 8 + 8);
+        if (tables == null) {
+            return curve.createPoint(encoded, true);
+        }
+        PrecompTable precmp = new PrecompTable(curve, 32, 8);
+        PrecomputedTables.decode(tables, 0, precmp);
+        GroupElement[] dblPrecmp = PrecomputedTables.decode(curve, tables, 32 * 8, 8);
+        return new GroupElement(curve.createPoint(encoded, false), precmp, dblPrecmp);
+    }
+
+    /**
+     * Encodes the tables of the base point as read by {@link #createBasePoint(Curve, byte[])}.
+     */
+    static byte[] encodeBasePointTables(GroupElement B) {
+        GroupElement[] entries = Arrays.copyOf(B.precmp.toArray(), 32 * 8 + 8);
+        System.arraycopy(B.dblPrecmp, 0, entries, 32 * 8, 8);
+        return PrecomputedTables.encode(entries);
+    }
+
+    // Initialized lazily so that only the implementation in use pays for its tables
+    private static class Radix25Holder {
+        static final Ed25519CurveParameterSpec SPEC = createSpec(new Ed25519LittleEndianEncoding());
+    }
+
+    private static class Radix51Holder {
+        static final Ed25519CurveParameterSpec SPEC = createSpec(new Ed25519LittleEndianEncoding51());
+    }
+
+    /**
+     * @return The curve parameters using the default {@link FieldImplementation}.
+     * @see #getDefaultFieldImplementation()
+     */
     public static Ed25519CurveParameterSpec getSpec() {
-        return ED_25519_CURVE_SPEC;
+        return getSpec(DEFAULT_FIELD_IMPLEMENTATION);
+    }
+
+    /**
+     * @return The curve parameters using the given {@link FieldImplementation}.
+     */
+    public static Ed25519CurveParameterSpec getSpec(FieldImplementation implementation) {
+        switch (implementation) {
+            case RADIX_51:
+                return Radix51Holder.SPEC;
+            case RADIX_25_5:
+            default:
+                return Radix25Holder.SPEC;
+        }
+    }
+
+    /**
+     * The default is taken from the {@value #FIELD_IMPLEMENTATION_PROPERTY} system property if set to one of the
+     * {@link FieldImplementation}s, case-insensitive. Otherwise,
+     * {@link FieldImplementation#RADIX_51} is used on 64-bit runtimes where {@code Math.multiplyHigh()} is available,
+     * and {@link FieldImplementation#RADIX_25_5} everywhere else.
+     */
+    public static FieldImplementation getDefaultFieldImplementation() {
+        return DEFAULT_FIELD_IMPLEMENTATION;
+    }
+
+    private static FieldImplementation findDefaultFieldImplementation() {
+        String property;
+        String dataModel;
+        String arch;
+        try {
+            property = System.getProperty(FIELD_IMPLEMENTATION_PROPERTY);
+            dataModel = System.getProperty("sun.arch.data.model");
+            arch = System.getProperty("os.arch", "");
+        } catch (SecurityException e) {
+            return FieldImplementation.RADIX_25_5;
+        }
+        if (property != null) {
+            try {
+                return FieldImplementation.valueOf(property.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ignore) {
+                // Failing here would make the class unusable for good, detect the implementation instead
+            }
+        }
+        boolean is64Bit = dataModel != null ? dataModel.equals("64") : arch.contains("64");
+        return is64Bit && Ed25519FieldElement51.hasMultiplyHigh()
+                ? FieldImplementation.RADIX_51 : FieldImplementation.RADIX_25_5;
     }
 }
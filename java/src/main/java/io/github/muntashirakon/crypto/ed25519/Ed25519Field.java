@@ -64,6 +64,44 @@ public class Ed25519Field implements Serializable {
         return enc.decode(x);
     }
 
+    /**
+     * @return A new field element set to zero, suitable as a destination for the mutable API of {@link FieldElement}.
+     */
+    public FieldElement newElement() {
+        return enc.newElement();
+    }
+
+    /**
+     * Inverts all the given field elements at once using Montgomery's trick, which costs a single inversion plus
+     * $3(n-1)$ multiplications instead of $n$ inversions.
+     * <p>
+     * None of the elements may be zero, otherwise all the results are zero.
+     *
+     * @param z The field elements to invert. They are left unchanged.
+     * @return New field elements such that the i-th one is the inverse of {@code z[i]}.
+     */
+    public FieldElement[] invertBatch(FieldElement[] z) {
+        final int n = z.length;
+        FieldElement[] out = new FieldElement[n];
+        if (n == 0) {
+            return out;
+        }
+        // out[i] = z[0] * ... * z[i]
+        out[0] = newElement().set(z[0]);
+        for (int i = 1; i < n; ++i) {
+            out[i] = newElement().setProduct(out[i - 1], z[i]);
+        }
+        // acc = (z[0] * ... * z[i])^-1
+        FieldElement acc = newElement().setInverse(out[n - 1]);
+        for (int i = n - 1; i > 0; --i) {
+            // z[i]^-1 = (z[0] * ... * z[i])^-1 * (z[0] * ... * z[i-1])
+            out[i].setProduct(acc, out[i - 1]);
+            acc.setProduct(acc, z[i]);
+        }
+        out[0] = acc;
+        return out;
+    }
+
     public int getb() {
         return b;
     }
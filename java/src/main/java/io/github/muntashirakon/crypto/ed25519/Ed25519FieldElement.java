@@ -50,8 +50,237 @@ public class Ed25519FieldElement extends FieldElement {
 
     /**
      * $h = f + g$
+     *
+     * @param val The field element to add.
+     * @return The field element this + val.
+     * @see #add(int[], int[], int[])
+     */
+    public FieldElement add(FieldElement val) {
+        int[] h = new int[10];
+        add(h, t, ((Ed25519FieldElement) val).t);
+        return new Ed25519FieldElement(f, h);
+    }
+
+    /**
+     * $h = f - g$
+     *
+     * @param val The field element to subtract.
+     * @return The field element this - val.
+     * @see #sub(int[], int[], int[])
+     */
+    public FieldElement subtract(FieldElement val) {
+        int[] h = new int[10];
+        sub(h, t, ((Ed25519FieldElement) val).t);
+        return new Ed25519FieldElement(f, h);
+    }
+
+    /**
+     * $h = -f$
+     *
+     * @return The field element (-1) * this.
+     * @see #neg(int[], int[])
+     */
+    public FieldElement negate() {
+        int[] h = new int[10];
+        neg(h, t);
+        return new Ed25519FieldElement(f, h);
+    }
+
+    /**
+     * $h = f * g$
+     *
+     * @param val The field element to multiply.
+     * @return The (reasonably reduced) field element this * val.
+     * @see #mul(int[], int[], int[])
+     */
+    public FieldElement multiply(FieldElement val) {
+        int[] h = new int[10];
+        mul(h, t, ((Ed25519FieldElement) val).t);
+        return new Ed25519FieldElement(f, h);
+    }
+
+    /**
+     * $h = f * f$
+     *
+     * @return The (reasonably reduced) square of this field element.
+     * @see #sqr(int[], int[])
+     */
+    public FieldElement square() {
+        int[] h = new int[10];
+        sqr(h, t);
+        return new Ed25519FieldElement(f, h);
+    }
+
+    /**
+     * $h = f^{2^n}$
+     *
+     * @param n The number of squarings, must be at least 1.
+     * @return The (reasonably reduced) field element this^(2^n).
+     * @see #sqrN(int[], int[], int)
+     */
+    public FieldElement squareN(int n) {
+        int[] h = new int[10];
+        sqrN(h, t, n);
+        return new Ed25519FieldElement(f, h);
+    }
+
+    /**
+     * $h = 2 * f * f$
+     *
+     * @return The (reasonably reduced) square of this field element times 2.
+     * @see #sqr2(int[], int[])
+     */
+    public FieldElement squareAndDouble() {
+        int[] h = new int[10];
+        sqr2(h, t);
+        return new Ed25519FieldElement(f, h);
+    }
+
+    /**
+     * Invert this field element.
      * <p>
-     * TODO-CR BR: $h$ is allocated via new, probably not a good idea. Do we need the copying into temp variables if we do that?
+     * The inverse is found via Fermat's little theorem:<br>
+     * $a^p \cong a \mod p$ and therefore $a^{(p-2)} \cong a^{-1} \mod p$
+     *
+     * @return The inverse of this field element.
+     */
+    public FieldElement invert() {
+        int[] h = new int[10];
+        invert(h, t);
+        return new Ed25519FieldElement(f, h);
+    }
+
+    /**
+     * Gets this field element to the power of $(2^{252} - 3)$.
+     * This is a helper function for calculating the square root.
+     * <p>
+     * TODO-CR BR: I think it makes sense to have a sqrt function.
+     *
+     * @return This field element to the power of $(2^{252} - 3)$.
+     */
+    public FieldElement pow22523() {
+        int[] h = new int[10];
+        pow22523(h, t);
+        return new Ed25519FieldElement(f, h);
+    }
+
+    /**
+     * Constant-time conditional move. Well, actually it is a conditional copy.
+     * Logic is inspired by the SUPERCOP implementation at:
+     *   https://github.com/floodyberry/supercop/blob/master/crypto_sign/ed25519/ref10/fe_cmov.c
+     *
+     * @param val the other field element.
+     * @param b must be 0 or 1, otherwise results are undefined.
+     * @return a copy of this if $b == 0$, or a copy of val if $b == 1$.
+     */
+    @Override
+    public FieldElement cmov(FieldElement val, int b) {
+        int[] h = t.clone();
+        cmov(h, ((Ed25519FieldElement) val).t, b);
+        return new Ed25519FieldElement(this.f, h);
+    }
+
+    @Override
+    public FieldElement set(FieldElement val) {
+        copy(t, ((Ed25519FieldElement) val).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setSum(FieldElement a, FieldElement b) {
+        add(t, ((Ed25519FieldElement) a).t, ((Ed25519FieldElement) b).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setDifference(FieldElement a, FieldElement b) {
+        sub(t, ((Ed25519FieldElement) a).t, ((Ed25519FieldElement) b).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setNegation(FieldElement a) {
+        neg(t, ((Ed25519FieldElement) a).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setProduct(FieldElement a, FieldElement b) {
+        mul(t, ((Ed25519FieldElement) a).t, ((Ed25519FieldElement) b).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setSquare(FieldElement a) {
+        sqr(t, ((Ed25519FieldElement) a).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setSquareN(FieldElement a, int n) {
+        sqrN(t, ((Ed25519FieldElement) a).t, n);
+        return this;
+    }
+
+    @Override
+    public FieldElement setSquareAndDouble(FieldElement a) {
+        sqr2(t, ((Ed25519FieldElement) a).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setInverse(FieldElement a) {
+        invert(t, ((Ed25519FieldElement) a).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setInverse(FieldElement a, FieldElement t0, FieldElement t1, FieldElement t2,
+                                   FieldElement t3) {
+        invert(t, ((Ed25519FieldElement) a).t, ((Ed25519FieldElement) t0).t, ((Ed25519FieldElement) t1).t,
+                ((Ed25519FieldElement) t2).t, ((Ed25519FieldElement) t3).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setPow22523(FieldElement a) {
+        pow22523(t, ((Ed25519FieldElement) a).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setPow22523(FieldElement a, FieldElement t0, FieldElement t1, FieldElement t2) {
+        pow22523(t, ((Ed25519FieldElement) a).t, ((Ed25519FieldElement) t0).t, ((Ed25519FieldElement) t1).t,
+                ((Ed25519FieldElement) t2).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setCmov(FieldElement val, int b) {
+        cmov(t, ((Ed25519FieldElement) val).t, b);
+        return this;
+    }
+
+    @Override
+    public FieldElement setCmovPacked(int[] src, int offset, int b) {
+        b = -b;
+        for (int i = 0; i < 10; i++) {
+            int x = t[i] ^ src[offset + i];
+            x &= b;
+            t[i] ^= x;
+        }
+        return this;
+    }
+
+    @Override
+    public void pack(int[] dst, int offset) {
+        System.arraycopy(t, 0, dst, offset, 10);
+    }
+
+    /**
+     * $h = f + g$
+     * <p>
+     * Can overlap $h$ with $f$ or $g$.
      * <p>
      * Preconditions:
      * </p><ul>
@@ -63,16 +292,14 @@ public class Ed25519FieldElement extends FieldElement {
      * <li>$|h|$ bounded by $1.1*2^{26},1.1*2^{25},1.1*2^{26},1.1*2^{25},$ etc.
      * </ul>
      *
-     * @param val The field element to add.
-     * @return The field element this + val.
+     * @param h The destination.
+     * @param f The first summand.
+     * @param g The second summand.
      */
-    public FieldElement add(FieldElement val) {
-        int[] g = ((Ed25519FieldElement)val).t;
-        int[] h = new int[10];
+    public static void add(int[] h, int[] f, int[] g) {
         for (int i = 0; i < 10; i++) {
-            h[i] = t[i] + g[i];
+            h[i] = f[i] + g[i];
         }
-        return new Ed25519FieldElement(f, h);
     }
 
     /**
@@ -80,8 +307,6 @@ public class Ed25519FieldElement extends FieldElement {
      * <p>
      * Can overlap $h$ with $f$ or $g$.
      * <p>
-     * TODO-CR BR: See above.
-     * <p>
      * Preconditions:
      * </p><ul>
      * <li>$|f|$ bounded by $1.1*2^{25},1.1*2^{24},1.1*2^{25},1.1*2^{24},$ etc.
@@ -92,22 +317,20 @@ public class Ed25519FieldElement extends FieldElement {
      * <li>$|h|$ bounded by $1.1*2^{26},1.1*2^{25},1.1*2^{26},1.1*2^{25},$ etc.
      * </ul>
      *
-     * @param val The field element to subtract.
-     * @return The field element this - val.
+     * @param h The destination.
+     * @param f The minuend.
+     * @param g The subtrahend.
      **/
-    public FieldElement subtract(FieldElement val) {
-        int[] g = ((Ed25519FieldElement)val).t;
-        int[] h = new int[10];
+    public static void sub(int[] h, int[] f, int[] g) {
         for (int i = 0; i < 10; i++) {
-            h[i] = t[i] - g[i];
+            h[i] = f[i] - g[i];
         }
-        return new Ed25519FieldElement(f, h);
     }
 
     /**
      * $h = -f$
      * <p>
-     * TODO-CR BR: see above.
+     * Can overlap $h$ with $f$.
      * <p>
      * Preconditions:
      * </p><ul>
@@ -118,14 +341,39 @@ public class Ed25519FieldElement extends FieldElement {
      * <li>$|h|$ bounded by $1.1*2^{25},1.1*2^{24},1.1*2^{25},1.1*2^{24},$ etc.
      * </ul>
      *
-     * @return The field element (-1) * this.
+     * @param h The destination.
+     * @param f The field element to negate.
      */
-    public FieldElement negate() {
-        int[] h = new int[10];
+    public static void neg(int[] h, int[] f) {
         for (int i = 0; i < 10; i++) {
-            h[i] = - t[i];
+            h[i] = -f[i];
+        }
+    }
+
+    /**
+     * $h = f$
+     *
+     * @param h The destination.
+     * @param f The field element to copy.
+     */
+    public static void copy(int[] h, int[] f) {
+        System.arraycopy(f, 0, h, 0, 10);
+    }
+
+    /**
+     * Constant-time conditional move. Replaces $f$ with $g$ if $b == 1$, leaves $f$ unchanged if $b == 0$.
+     *
+     * @param f The destination.
+     * @param g The field element to copy if $b == 1$.
+     * @param b must be 0 or 1, otherwise results are undefined.
+     */
+    public static void cmov(int[] f, int[] g, int b) {
+        b = -b;
+        for (int i = 0; i < 10; i++) {
+            int x = f[i] ^ g[i];
+            x &= b;
+            f[i] ^= x;
         }
-        return new Ed25519FieldElement(f, h);
     }
 
     /**
@@ -163,11 +411,11 @@ public class Ed25519FieldElement extends FieldElement {
      * <p>
      * With tighter constraints on inputs can squeeze carries into int32.
      *
-     * @param val The field element to multiply.
-     * @return The (reasonably reduced) field element this * val.
+     * @param h The destination.
+     * @param f The first factor.
+     * @param g The second factor.
      */
-    public FieldElement multiply(FieldElement val) {
-        int[] g = ((Ed25519FieldElement)val).t;
+    public static void mul(int[] h, int[] f, int[] g) {
         long x1;
         long x2;
         long x3;
@@ -315,106 +563,106 @@ public class Ed25519FieldElement extends FieldElement {
         byte x145;
         int x146;
         int x147;
-        x1 = ((long)(t[9]) * ((g[9]) * (byte) 0x26));
-        x2 = ((long)(t[9]) * ((g[8]) * (byte) 0x13));
-        x3 = ((long)(t[9]) * ((g[7]) * (byte) 0x26));
-        x4 = ((long)(t[9]) * ((g[6]) * (byte) 0x13));
-        x5 = ((long)(t[9]) * ((g[5]) * (byte) 0x26));
-        x6 = ((long)(t[9]) * ((g[4]) * (byte) 0x13));
-        x7 = ((long)(t[9]) * ((g[3]) * (byte) 0x26));
-        x8 = ((long)(t[9]) * ((g[2]) * (byte) 0x13));
-        x9 = ((long)(t[9]) * ((g[1]) * (byte) 0x26));
-        x10 = ((long)(t[8]) * ((g[9]) * (byte) 0x13));
-        x11 = ((long)(t[8]) * ((g[8]) * (byte) 0x13));
-        x12 = ((long)(t[8]) * ((g[7]) * (byte) 0x13));
-        x13 = ((long)(t[8]) * ((g[6]) * (byte) 0x13));
-        x14 = ((long)(t[8]) * ((g[5]) * (byte) 0x13));
-        x15 = ((long)(t[8]) * ((g[4]) * (byte) 0x13));
-        x16 = ((long)(t[8]) * ((g[3]) * (byte) 0x13));
-        x17 = ((long)(t[8]) * ((g[2]) * (byte) 0x13));
-        x18 = ((long)(t[7]) * ((g[9]) * (byte) 0x26));
-        x19 = ((long)(t[7]) * ((g[8]) * (byte) 0x13));
-        x20 = ((long)(t[7]) * ((g[7]) * (byte) 0x26));
-        x21 = ((long)(t[7]) * ((g[6]) * (byte) 0x13));
-        x22 = ((long)(t[7]) * ((g[5]) * (byte) 0x26));
-        x23 = ((long)(t[7]) * ((g[4]) * (byte) 0x13));
-        x24 = ((long)(t[7]) * ((g[3]) * (byte) 0x26));
-        x25 = ((long)(t[6]) * ((g[9]) * (byte) 0x13));
-        x26 = ((long)(t[6]) * ((g[8]) * (byte) 0x13));
-        x27 = ((long)(t[6]) * ((g[7]) * (byte) 0x13));
-        x28 = ((long)(t[6]) * ((g[6]) * (byte) 0x13));
-        x29 = ((long)(t[6]) * ((g[5]) * (byte) 0x13));
-        x30 = ((long)(t[6]) * ((g[4]) * (byte) 0x13));
-        x31 = ((long)(t[5]) * ((g[9]) * (byte) 0x26));
-        x32 = ((long)(t[5]) * ((g[8]) * (byte) 0x13));
-        x33 = ((long)(t[5]) * ((g[7]) * (byte) 0x26));
-        x34 = ((long)(t[5]) * ((g[6]) * (byte) 0x13));
-        x35 = ((long)(t[5]) * ((g[5]) * (byte) 0x26));
-        x36 = ((long)(t[4]) * ((g[9]) * (byte) 0x13));
-        x37 = ((long)(t[4]) * ((g[8]) * (byte) 0x13));
-        x38 = ((long)(t[4]) * ((g[7]) * (byte) 0x13));
-        x39 = ((long)(t[4]) * ((g[6]) * (byte) 0x13));
-        x40 = ((long)(t[3]) * ((g[9]) * (byte) 0x26));
-        x41 = ((long)(t[3]) * ((g[8]) * (byte) 0x13));
-        x42 = ((long)(t[3]) * ((g[7]) * (byte) 0x26));
-        x43 = ((long)(t[2]) * ((g[9]) * (byte) 0x13));
-        x44 = ((long)(t[2]) * ((g[8]) * (byte) 0x13));
-        x45 = ((long)(t[1]) * ((g[9]) * (byte) 0x26));
-        x46 = ((long)(t[9]) * (g[0]));
-        x47 = ((long)(t[8]) * (g[1]));
-        x48 = ((long)(t[8]) * (g[0]));
-        x49 = ((long)(t[7]) * (g[2]));
-        x50 = ((long)(t[7]) * ((g[1]) * 0x2));
-        x51 = ((long)(t[7]) * (g[0]));
-        x52 = ((long)(t[6]) * (g[3]));
-        x53 = ((long)(t[6]) * (g[2]));
-        x54 = ((long)(t[6]) * (g[1]));
-        x55 = ((long)(t[6]) * (g[0]));
-        x56 = ((long)(t[5]) * (g[4]));
-        x57 = ((long)(t[5]) * ((g[3]) * 0x2));
-        x58 = ((long)(t[5]) * (g[2]));
-        x59 = ((long)(t[5]) * ((g[1]) * 0x2));
-        x60 = ((long)(t[5]) * (g[0]));
-        x61 = ((long)(t[4]) * (g[5]));
-        x62 = ((long)(t[4]) * (g[4]));
-        x63 = ((long)(t[4]) * (g[3]));
-        x64 = ((long)(t[4]) * (g[2]));
-        x65 = ((long)(t[4]) * (g[1]));
-        x66 = ((long)(t[4]) * (g[0]));
-        x67 = ((long)(t[3]) * (g[6]));
-        x68 = ((long)(t[3]) * ((g[5]) * 0x2));
-        x69 = ((long)(t[3]) * (g[4]));
-        x70 = ((long)(t[3]) * ((g[3]) * 0x2));
-        x71 = ((long)(t[3]) * (g[2]));
-        x72 = ((long)(t[3]) * ((g[1]) * 0x2));
-        x73 = ((long)(t[3]) * (g[0]));
-        x74 = ((long)(t[2]) * (g[7]));
-        x75 = ((long)(t[2]) * (g[6]));
-        x76 = ((long)(t[2]) * (g[5]));
-        x77 = ((long)(t[2]) * (g[4]));
-        x78 = ((long)(t[2]) * (g[3]));
-        x79 = ((long)(t[2]) * (g[2]));
-        x80 = ((long)(t[2]) * (g[1]));
-        x81 = ((long)(t[2]) * (g[0]));
-        x82 = ((long)(t[1]) * (g[8]));
-        x83 = ((long)(t[1]) * ((g[7]) * 0x2));
-        x84 = ((long)(t[1]) * (g[6]));
-        x85 = ((long)(t[1]) * ((g[5]) * 0x2));
-        x86 = ((long)(t[1]) * (g[4]));
-        x87 = ((long)(t[1]) * ((g[3]) * 0x2));
-        x88 = ((long)(t[1]) * (g[2]));
-        x89 = ((long)(t[1]) * ((g[1]) * 0x2));
-        x90 = ((long)(t[1]) * (g[0]));
-        x91 = ((long)(t[0]) * (g[9]));
-        x92 = ((long)(t[0]) * (g[8]));
-        x93 = ((long)(t[0]) * (g[7]));
-        x94 = ((long)(t[0]) * (g[6]));
-        x95 = ((long)(t[0]) * (g[5]));
-        x96 = ((long)(t[0]) * (g[4]));
-        x97 = ((long)(t[0]) * (g[3]));
-        x98 = ((long)(t[0]) * (g[2]));
-        x99 = ((long)(t[0]) * (g[1]));
-        x100 = ((long)(t[0]) * (g[0]));
+        x1 = ((long)(f[9]) * ((long)(g[9]) * (byte) 0x26));
+        x2 = ((long)(f[9]) * ((long)(g[8]) * (byte) 0x13));
+        x3 = ((long)(f[9]) * ((long)(g[7]) * (byte) 0x26));
+        x4 = ((long)(f[9]) * ((long)(g[6]) * (byte) 0x13));
+        x5 = ((long)(f[9]) * ((long)(g[5]) * (byte) 0x26));
+        x6 = ((long)(f[9]) * ((long)(g[4]) * (byte) 0x13));
+        x7 = ((long)(f[9]) * ((long)(g[3]) * (byte) 0x26));
+        x8 = ((long)(f[9]) * ((long)(g[2]) * (byte) 0x13));
+        x9 = ((long)(f[9]) * ((long)(g[1]) * (byte) 0x26));
+        x10 = ((long)(f[8]) * ((long)(g[9]) * (byte) 0x13));
+        x11 = ((long)(f[8]) * ((long)(g[8]) * (byte) 0x13));
+        x12 = ((long)(f[8]) * ((long)(g[7]) * (byte) 0x13));
+        x13 = ((long)(f[8]) * ((long)(g[6]) * (byte) 0x13));
+        x14 = ((long)(f[8]) * ((long)(g[5]) * (byte) 0x13));
+        x15 = ((long)(f[8]) * ((long)(g[4]) * (byte) 0x13));
+        x16 = ((long)(f[8]) * ((long)(g[3]) * (byte) 0x13));
+        x17 = ((long)(f[8]) * ((long)(g[2]) * (byte) 0x13));
+        x18 = ((long)(f[7]) * ((long)(g[9]) * (byte) 0x26));
+        x19 = ((long)(f[7]) * ((long)(g[8]) * (byte) 0x13));
+        x20 = ((long)(f[7]) * ((long)(g[7]) * (byte) 0x26));
+        x21 = ((long)(f[7]) * ((long)(g[6]) * (byte) 0x13));
+        x22 = ((long)(f[7]) * ((long)(g[5]) * (byte) 0x26));
+        x23 = ((long)(f[7]) * ((long)(g[4]) * (byte) 0x13));
+        x24 = ((long)(f[7]) * ((long)(g[3]) * (byte) 0x26));
+        x25 = ((long)(f[6]) * ((long)(g[9]) * (byte) 0x13));
+        x26 = ((long)(f[6]) * ((long)(g[8]) * (byte) 0x13));
+        x27 = ((long)(f[6]) * ((long)(g[7]) * (byte) 0x13));
+        x28 = ((long)(f[6]) * ((long)(g[6]) * (byte) 0x13));
+        x29 = ((long)(f[6]) * ((long)(g[5]) * (byte) 0x13));
+        x30 = ((long)(f[6]) * ((long)(g[4]) * (byte) 0x13));
+        x31 = ((long)(f[5]) * ((long)(g[9]) * (byte) 0x26));
+        x32 = ((long)(f[5]) * ((long)(g[8]) * (byte) 0x13));
+        x33 = ((long)(f[5]) * ((long)(g[7]) * (byte) 0x26));
+        x34 = ((long)(f[5]) * ((long)(g[6]) * (byte) 0x13));
+        x35 = ((long)(f[5]) * ((long)(g[5]) * (byte) 0x26));
+        x36 = ((long)(f[4]) * ((long)(g[9]) * (byte) 0x13));
+        x37 = ((long)(f[4]) * ((long)(g[8]) * (byte) 0x13));
+        x38 = ((long)(f[4]) * ((long)(g[7]) * (byte) 0x13));
+        x39 = ((long)(f[4]) * ((long)(g[6]) * (byte) 0x13));
+        x40 = ((long)(f[3]) * ((long)(g[9]) * (byte) 0x26));
+        x41 = ((long)(f[3]) * ((long)(g[8]) * (byte) 0x13));
+        x42 = ((long)(f[3]) * ((long)(g[7]) * (byte) 0x26));
+        x43 = ((long)(f[2]) * ((long)(g[9]) * (byte) 0x13));
+        x44 = ((long)(f[2]) * ((long)(g[8]) * (byte) 0x13));
+        x45 = ((long)(f[1]) * ((long)(g[9]) * (byte) 0x26));
+        x46 = ((long)(f[9]) * (g[0]));
+        x47 = ((long)(f[8]) * (g[1]));
+        x48 = ((long)(f[8]) * (g[0]));
+        x49 = ((long)(f[7]) * (g[2]));
+        x50 = ((long)(f[7]) * ((g[1]) * 0x2));
+        x51 = ((long)(f[7]) * (g[0]));
+        x52 = ((long)(f[6]) * (g[3]));
+        x53 = ((long)(f[6]) * (g[2]));
+        x54 = ((long)(f[6]) * (g[1]));
+        x55 = ((long)(f[6]) * (g[0]));
+        x56 = ((long)(f[5]) * (g[4]));
+        x57 = ((long)(f[5]) * ((g[3]) * 0x2));
+        x58 = ((long)(f[5]) * (g[2]));
+        x59 = ((long)(f[5]) * ((g[1]) * 0x2));
+        x60 = ((long)(f[5]) * (g[0]));
+        x61 = ((long)(f[4]) * (g[5]));
+        x62 = ((long)(f[4]) * (g[4]));
+        x63 = ((long)(f[4]) * (g[3]));
+        x64 = ((long)(f[4]) * (g[2]));
+        x65 = ((long)(f[4]) * (g[1]));
+        x66 = ((long)(f[4]) * (g[0]));
+        x67 = ((long)(f[3]) * (g[6]));
+        x68 = ((long)(f[3]) * ((g[5]) * 0x2));
+        x69 = ((long)(f[3]) * (g[4]));
+        x70 = ((long)(f[3]) * ((g[3]) * 0x2));
+        x71 = ((long)(f[3]) * (g[2]));
+        x72 = ((long)(f[3]) * ((g[1]) * 0x2));
+        x73 = ((long)(f[3]) * (g[0]));
+        x74 = ((long)(f[2]) * (g[7]));
+        x75 = ((long)(f[2]) * (g[6]));
+        x76 = ((long)(f[2]) * (g[5]));
+        x77 = ((long)(f[2]) * (g[4]));
+        x78 = ((long)(f[2]) * (g[3]));
+        x79 = ((long)(f[2]) * (g[2]));
+        x80 = ((long)(f[2]) * (g[1]));
+        x81 = ((long)(f[2]) * (g[0]));
+        x82 = ((long)(f[1]) * (g[8]));
+        x83 = ((long)(f[1]) * ((g[7]) * 0x2));
+        x84 = ((long)(f[1]) * (g[6]));
+        x85 = ((long)(f[1]) * ((g[5]) * 0x2));
+        x86 = ((long)(f[1]) * (g[4]));
+        x87 = ((long)(f[1]) * ((g[3]) * 0x2));
+        x88 = ((long)(f[1]) * (g[2]));
+        x89 = ((long)(f[1]) * ((g[1]) * 0x2));
+        x90 = ((long)(f[1]) * (g[0]));
+        x91 = ((long)(f[0]) * (g[9]));
+        x92 = ((long)(f[0]) * (g[8]));
+        x93 = ((long)(f[0]) * (g[7]));
+        x94 = ((long)(f[0]) * (g[6]));
+        x95 = ((long)(f[0]) * (g[5]));
+        x96 = ((long)(f[0]) * (g[4]));
+        x97 = ((long)(f[0]) * (g[3]));
+        x98 = ((long)(f[0]) * (g[2]));
+        x99 = ((long)(f[0]) * (g[1]));
+        x100 = ((long)(f[0]) * (g[0]));
         x101 = (x100 + (x45 + (x44 + (x42 + (x39 + (x35 + (x30 + (x24 + (x17 + x9)))))))));
         x102 = (x101 >> 26);
         x103 = (int)(x101 & 0x3ffffff);
@@ -462,18 +710,16 @@ public class Ed25519FieldElement extends FieldElement {
         x145 = (byte)(x144 >> 25);
         x146 = (x144 & 0x1ffffff);
         x147 = (x145 + x118);
-        int[] out1 = new int[10];
-        out1[0] = x143;
-        out1[1] = x146;
-        out1[2] = x147;
-        out1[3] = x121;
-        out1[4] = x124;
-        out1[5] = x127;
-        out1[6] = x130;
-        out1[7] = x133;
-        out1[8] = x136;
-        out1[9] = x139;
-        return new Ed25519FieldElement(f, out1);
+        h[0] = x143;
+        h[1] = x146;
+        h[2] = x147;
+        h[3] = x121;
+        h[4] = x124;
+        h[5] = x127;
+        h[6] = x130;
+        h[7] = x133;
+        h[8] = x136;
+        h[9] = x139;
     }
 
     /**
@@ -489,147 +735,174 @@ public class Ed25519FieldElement extends FieldElement {
      * </p><ul>
      * <li>$|h|$ bounded by $1.01*2^{25},1.01*2^{24},1.01*2^{25},1.01*2^{24},$ etc.
      * </ul><p>
-     * See {@link #multiply(FieldElement)} for discussion
+     * See {@link #mul(int[], int[], int[])} for discussion
      * of implementation strategy.
      *
-     * @return The (reasonably reduced) square of this field element.
+     * @param h The destination.
+     * @param f The field element to square.
      */
-    public FieldElement square() {
-        int f0 = t[0];
-        int f1 = t[1];
-        int f2 = t[2];
-        int f3 = t[3];
-        int f4 = t[4];
-        int f5 = t[5];
-        int f6 = t[6];
-        int f7 = t[7];
-        int f8 = t[8];
-        int f9 = t[9];
-        int f0_2 = 2 * f0;
-        int f1_2 = 2 * f1;
-        int f2_2 = 2 * f2;
-        int f3_2 = 2 * f3;
-        int f4_2 = 2 * f4;
-        int f5_2 = 2 * f5;
-        int f6_2 = 2 * f6;
-        int f7_2 = 2 * f7;
-        int f5_38 = 38 * f5; /* 1.959375*2^30 */
-        int f6_19 = 19 * f6; /* 1.959375*2^30 */
-        int f7_38 = 38 * f7; /* 1.959375*2^30 */
-        int f8_19 = 19 * f8; /* 1.959375*2^30 */
-        int f9_38 = 38 * f9; /* 1.959375*2^30 */
-        long f0f0    = f0   * (long) f0;
-        long f0f1_2  = f0_2 * (long) f1;
-        long f0f2_2  = f0_2 * (long) f2;
-        long f0f3_2  = f0_2 * (long) f3;
-        long f0f4_2  = f0_2 * (long) f4;
-        long f0f5_2  = f0_2 * (long) f5;
-        long f0f6_2  = f0_2 * (long) f6;
-        long f0f7_2  = f0_2 * (long) f7;
-        long f0f8_2  = f0_2 * (long) f8;
-        long f0f9_2  = f0_2 * (long) f9;
-        long f1f1_2  = f1_2 * (long) f1;
-        long f1f2_2  = f1_2 * (long) f2;
-        long f1f3_4  = f1_2 * (long) f3_2;
-        long f1f4_2  = f1_2 * (long) f4;
-        long f1f5_4  = f1_2 * (long) f5_2;
-        long f1f6_2  = f1_2 * (long) f6;
-        long f1f7_4  = f1_2 * (long) f7_2;
-        long f1f8_2  = f1_2 * (long) f8;
-        long f1f9_76 = f1_2 * (long) f9_38;
-        long f2f2    = f2   * (long) f2;
-        long f2f3_2  = f2_2 * (long) f3;
-        long f2f4_2  = f2_2 * (long) f4;
-        long f2f5_2  = f2_2 * (long) f5;
-        long f2f6_2  = f2_2 * (long) f6;
-        long f2f7_2  = f2_2 * (long) f7;
-        long f2f8_38 = f2_2 * (long) f8_19;
-        long f2f9_38 = f2   * (long) f9_38;
-        long f3f3_2  = f3_2 * (long) f3;
-        long f3f4_2  = f3_2 * (long) f4;
-        long f3f5_4  = f3_2 * (long) f5_2;
-        long f3f6_2  = f3_2 * (long) f6;
-        long f3f7_76 = f3_2 * (long) f7_38;
-        long f3f8_38 = f3_2 * (long) f8_19;
-        long f3f9_76 = f3_2 * (long) f9_38;
-        long f4f4    = f4   * (long) f4;
-        long f4f5_2  = f4_2 * (long) f5;
-        long f4f6_38 = f4_2 * (long) f6_19;
-        long f4f7_38 = f4   * (long) f7_38;
-        long f4f8_38 = f4_2 * (long) f8_19;
-        long f4f9_38 = f4   * (long) f9_38;
-        long f5f5_38 = f5   * (long) f5_38;
-        long f5f6_38 = f5_2 * (long) f6_19;
-        long f5f7_76 = f5_2 * (long) f7_38;
-        long f5f8_38 = f5_2 * (long) f8_19;
-        long f5f9_76 = f5_2 * (long) f9_38;
-        long f6f6_19 = f6   * (long) f6_19;
-        long f6f7_38 = f6   * (long) f7_38;
-        long f6f8_38 = f6_2 * (long) f8_19;
-        long f6f9_38 = f6   * (long) f9_38;
-        long f7f7_38 = f7   * (long) f7_38;
-        long f7f8_38 = f7_2 * (long) f8_19;
-        long f7f9_76 = f7_2 * (long) f9_38;
-        long f8f8_19 = f8   * (long) f8_19;
-        long f8f9_38 = f8   * (long) f9_38;
-        long f9f9_38 = f9   * (long) f9_38;
-
-        /**
-         * Same procedure as in multiply, but this time we have a higher symmetry leading to less summands.
-         * e.g. f1f9_76 really stands for f1 * 2^26 * f9 * 2^230 + f9 * 2^230 + f1 * 2^26 congruent 2 * 2 * 19 * f1 * f9  2^0 modulo p.
-         */
-        long h0 = f0f0   + f1f9_76 + f2f8_38 + f3f7_76 + f4f6_38 + f5f5_38;
-        long h1 = f0f1_2 + f2f9_38 + f3f8_38 + f4f7_38 + f5f6_38;
-        long h2 = f0f2_2 + f1f1_2  + f3f9_76 + f4f8_38 + f5f7_76 + f6f6_19;
-        long h3 = f0f3_2 + f1f2_2  + f4f9_38 + f5f8_38 + f6f7_38;
-        long h4 = f0f4_2 + f1f3_4  + f2f2    + f5f9_76 + f6f8_38 + f7f7_38;
-        long h5 = f0f5_2 + f1f4_2  + f2f3_2  + f6f9_38 + f7f8_38;
-        long h6 = f0f6_2 + f1f5_4  + f2f4_2  + f3f3_2  + f7f9_76 + f8f8_19;
-        long h7 = f0f7_2 + f1f6_2  + f2f5_2  + f3f4_2  + f8f9_38;
-        long h8 = f0f8_2 + f1f7_4  + f2f6_2  + f3f5_4  + f4f4    + f9f9_38;
-        long h9 = f0f9_2 + f1f8_2  + f2f7_2  + f3f6_2  + f4f5_2;
-        long carry0;
-        long carry1;
-        long carry2;
-        long carry3;
-        long carry4;
-        long carry5;
-        long carry6;
-        long carry7;
-        long carry8;
-        long carry9;
-
-        carry0 = (h0 + (long) (1<<25)) >> 26; h1 += carry0; h0 -= carry0 << 26;
-        carry4 = (h4 + (long) (1<<25)) >> 26; h5 += carry4; h4 -= carry4 << 26;
-
-        carry1 = (h1 + (long) (1<<24)) >> 25; h2 += carry1; h1 -= carry1 << 25;
-        carry5 = (h5 + (long) (1<<24)) >> 25; h6 += carry5; h5 -= carry5 << 25;
-
-        carry2 = (h2 + (long) (1<<25)) >> 26; h3 += carry2; h2 -= carry2 << 26;
-        carry6 = (h6 + (long) (1<<25)) >> 26; h7 += carry6; h6 -= carry6 << 26;
-
-        carry3 = (h3 + (long) (1<<24)) >> 25; h4 += carry3; h3 -= carry3 << 25;
-        carry7 = (h7 + (long) (1<<24)) >> 25; h8 += carry7; h7 -= carry7 << 25;
-
-        carry4 = (h4 + (long) (1<<25)) >> 26; h5 += carry4; h4 -= carry4 << 26;
-        carry8 = (h8 + (long) (1<<25)) >> 26; h9 += carry8; h8 -= carry8 << 26;
-
-        carry9 = (h9 + (long) (1<<24)) >> 25; h0 += carry9 * 19; h9 -= carry9 << 25;
-
-        carry0 = (h0 + (long) (1<<25)) >> 26; h1 += carry0; h0 -= carry0 << 26;
+    public static void sqr(int[] h, int[] f) {
+        sqrN(h, f, 1);
+    }
 
-        int[] h = new int[10];
-        h[0] = (int) h0;
-        h[1] = (int) h1;
-        h[2] = (int) h2;
-        h[3] = (int) h3;
-        h[4] = (int) h4;
-        h[5] = (int) h5;
-        h[6] = (int) h6;
-        h[7] = (int) h7;
-        h[8] = (int) h8;
-        h[9] = (int) h9;
-        return new Ed25519FieldElement(f, h);
+    /**
+     * $h = f^{2^n}$, i.e. $n$ successive squarings of $f$, for $n \ge 1$. The limbs are kept in local variables
+     * between the squarings.
+     * <p>
+     * Can overlap $h$ with $f$.
+     * <p>
+     * Preconditions and postconditions are those of {@link #sqr(int[], int[])}.
+     *
+     * @param h The destination.
+     * @param f The field element to square.
+     * @param n The number of squarings.
+     */
+    public static void sqrN(int[] h, int[] f, int n) {
+        int f0 = f[0];
+        int f1 = f[1];
+        int f2 = f[2];
+        int f3 = f[3];
+        int f4 = f[4];
+        int f5 = f[5];
+        int f6 = f[6];
+        int f7 = f[7];
+        int f8 = f[8];
+        int f9 = f[9];
+        for (int i = 0; i < n; ++i) {
+            int f0_2 = 2 * f0;
+            int f1_2 = 2 * f1;
+            int f2_2 = 2 * f2;
+            int f3_2 = 2 * f3;
+            int f4_2 = 2 * f4;
+            int f5_2 = 2 * f5;
+            int f6_2 = 2 * f6;
+            int f7_2 = 2 * f7;
+            long f5_38 = 38L * f5; /* 1.959375*2^30 */
+            long f6_19 = 19L * f6; /* 1.959375*2^30 */
+            long f7_38 = 38L * f7; /* 1.959375*2^30 */
+            long f8_19 = 19L * f8; /* 1.959375*2^30 */
+            long f9_38 = 38L * f9; /* 1.959375*2^30 */
+            long f0f0    = f0   * (long) f0;
+            long f0f1_2  = f0_2 * (long) f1;
+            long f0f2_2  = f0_2 * (long) f2;
+            long f0f3_2  = f0_2 * (long) f3;
+            long f0f4_2  = f0_2 * (long) f4;
+            long f0f5_2  = f0_2 * (long) f5;
+            long f0f6_2  = f0_2 * (long) f6;
+            long f0f7_2  = f0_2 * (long) f7;
+            long f0f8_2  = f0_2 * (long) f8;
+            long f0f9_2  = f0_2 * (long) f9;
+            long f1f1_2  = f1_2 * (long) f1;
+            long f1f2_2  = f1_2 * (long) f2;
+            long f1f3_4  = f1_2 * (long) f3_2;
+            long f1f4_2  = f1_2 * (long) f4;
+            long f1f5_4  = f1_2 * (long) f5_2;
+            long f1f6_2  = f1_2 * (long) f6;
+            long f1f7_4  = f1_2 * (long) f7_2;
+            long f1f8_2  = f1_2 * (long) f8;
+            long f1f9_76 = f1_2 * f9_38;
+            long f2f2    = f2   * (long) f2;
+            long f2f3_2  = f2_2 * (long) f3;
+            long f2f4_2  = f2_2 * (long) f4;
+            long f2f5_2  = f2_2 * (long) f5;
+            long f2f6_2  = f2_2 * (long) f6;
+            long f2f7_2  = f2_2 * (long) f7;
+            long f2f8_38 = f2_2 * f8_19;
+            long f2f9_38 = f2   * f9_38;
+            long f3f3_2  = f3_2 * (long) f3;
+            long f3f4_2  = f3_2 * (long) f4;
+            long f3f5_4  = f3_2 * (long) f5_2;
+            long f3f6_2  = f3_2 * (long) f6;
+            long f3f7_76 = f3_2 * f7_38;
+            long f3f8_38 = f3_2 * f8_19;
+            long f3f9_76 = f3_2 * f9_38;
+            long f4f4    = f4   * (long) f4;
+            long f4f5_2  = f4_2 * (long) f5;
+            long f4f6_38 = f4_2 * f6_19;
+            long f4f7_38 = f4   * f7_38;
+            long f4f8_38 = f4_2 * f8_19;
+            long f4f9_38 = f4   * f9_38;
+            long f5f5_38 = f5   * f5_38;
+            long f5f6_38 = f5_2 * f6_19;
+            long f5f7_76 = f5_2 * f7_38;
+            long f5f8_38 = f5_2 * f8_19;
+            long f5f9_76 = f5_2 * f9_38;
+            long f6f6_19 = f6   * f6_19;
+            long f6f7_38 = f6   * f7_38;
+            long f6f8_38 = f6_2 * f8_19;
+            long f6f9_38 = f6   * f9_38;
+            long f7f7_38 = f7   * f7_38;
+            long f7f8_38 = f7_2 * f8_19;
+            long f7f9_76 = f7_2 * f9_38;
+            long f8f8_19 = f8   * f8_19;
+            long f8f9_38 = f8   * f9_38;
+            long f9f9_38 = f9   * f9_38;
+
+            /**
+             * Same procedure as in multiply, but this time we have a higher symmetry leading to less summands.
+             * e.g. f1f9_76 really stands for f1 * 2^26 * f9 * 2^230 + f9 * 2^230 + f1 * 2^26 congruent 2 * 2 * 19 * f1 * f9  2^0 modulo p.
+             */
+            long h0 = f0f0   + f1f9_76 + f2f8_38 + f3f7_76 + f4f6_38 + f5f5_38;
+            long h1 = f0f1_2 + f2f9_38 + f3f8_38 + f4f7_38 + f5f6_38;
+            long h2 = f0f2_2 + f1f1_2  + f3f9_76 + f4f8_38 + f5f7_76 + f6f6_19;
+            long h3 = f0f3_2 + f1f2_2  + f4f9_38 + f5f8_38 + f6f7_38;
+            long h4 = f0f4_2 + f1f3_4  + f2f2    + f5f9_76 + f6f8_38 + f7f7_38;
+            long h5 = f0f5_2 + f1f4_2  + f2f3_2  + f6f9_38 + f7f8_38;
+            long h6 = f0f6_2 + f1f5_4  + f2f4_2  + f3f3_2  + f7f9_76 + f8f8_19;
+            long h7 = f0f7_2 + f1f6_2  + f2f5_2  + f3f4_2  + f8f9_38;
+            long h8 = f0f8_2 + f1f7_4  + f2f6_2  + f3f5_4  + f4f4    + f9f9_38;
+            long h9 = f0f9_2 + f1f8_2  + f2f7_2  + f3f6_2  + f4f5_2;
+            long carry0;
+            long carry1;
+            long carry2;
+            long carry3;
+            long carry4;
+            long carry5;
+            long carry6;
+            long carry7;
+            long carry8;
+            long carry9;
+
+            carry0 = (h0 + (long) (1<<25)) >> 26; h1 += carry0; h0 -= carry0 << 26;
+            carry4 = (h4 + (long) (1<<25)) >> 26; h5 += carry4; h4 -= carry4 << 26;
+
+            carry1 = (h1 + (long) (1<<24)) >> 25; h2 += carry1; h1 -= carry1 << 25;
+            carry5 = (h5 + (long) (1<<24)) >> 25; h6 += carry5; h5 -= carry5 << 25;
+
+            carry2 = (h2 + (long) (1<<25)) >> 26; h3 += carry2; h2 -= carry2 << 26;
+            carry6 = (h6 + (long) (1<<25)) >> 26; h7 += carry6; h6 -= carry6 << 26;
+
+            carry3 = (h3 + (long) (1<<24)) >> 25; h4 += carry3; h3 -= carry3 << 25;
+            carry7 = (h7 + (long) (1<<24)) >> 25; h8 += carry7; h7 -= carry7 << 25;
+
+            carry4 = (h4 + (long) (1<<25)) >> 26; h5 += carry4; h4 -= carry4 << 26;
+            carry8 = (h8 + (long) (1<<25)) >> 26; h9 += carry8; h8 -= carry8 << 26;
+
+            carry9 = (h9 + (long) (1<<24)) >> 25; h0 += carry9 * 19; h9 -= carry9 << 25;
+
+            carry0 = (h0 + (long) (1<<25)) >> 26; h1 += carry0; h0 -= carry0 << 26;
+
+            f0 = (int) h0;
+            f1 = (int) h1;
+            f2 = (int) h2;
+            f3 = (int) h3;
+            f4 = (int) h4;
+            f5 = (int) h5;
+            f6 = (int) h6;
+            f7 = (int) h7;
+            f8 = (int) h8;
+            f9 = (int) h9;
+        }
+        h[0] = f0;
+        h[1] = f1;
+        h[2] = f2;
+        h[3] = f3;
+        h[4] = f4;
+        h[5] = f5;
+        h[6] = f6;
+        h[7] = f7;
+        h[8] = f8;
+        h[9] = f9;
     }
 
     /**
@@ -645,22 +918,23 @@ public class Ed25519FieldElement extends FieldElement {
      * </p><ul>
      * <li>$|h|$ bounded by $1.01*2^{25},1.01*2^{24},1.01*2^{25},1.01*2^{24},$ etc.
      * </ul><p>
-     * See {@link #multiply(FieldElement)} for discussion
+     * See {@link #mul(int[], int[], int[])} for discussion
      * of implementation strategy.
      *
-     * @return The (reasonably reduced) square of this field element times 2.
+     * @param h The destination.
+     * @param f The field element to square.
      */
-    public FieldElement squareAndDouble() {
-        int f0 = t[0];
-        int f1 = t[1];
-        int f2 = t[2];
-        int f3 = t[3];
-        int f4 = t[4];
-        int f5 = t[5];
-        int f6 = t[6];
-        int f7 = t[7];
-        int f8 = t[8];
-        int f9 = t[9];
+    public static void sqr2(int[] h, int[] f) {
+        int f0 = f[0];
+        int f1 = f[1];
+        int f2 = f[2];
+        int f3 = f[3];
+        int f4 = f[4];
+        int f5 = f[5];
+        int f6 = f[6];
+        int f7 = f[7];
+        int f8 = f[8];
+        int f9 = f[9];
         int f0_2 = 2 * f0;
         int f1_2 = 2 * f1;
         int f2_2 = 2 * f2;
@@ -669,11 +943,11 @@ public class Ed25519FieldElement extends FieldElement {
         int f5_2 = 2 * f5;
         int f6_2 = 2 * f6;
         int f7_2 = 2 * f7;
-        int f5_38 = 38 * f5; /* 1.959375*2^30 */
-        int f6_19 = 19 * f6; /* 1.959375*2^30 */
-        int f7_38 = 38 * f7; /* 1.959375*2^30 */
-        int f8_19 = 19 * f8; /* 1.959375*2^30 */
-        int f9_38 = 38 * f9; /* 1.959375*2^30 */
+        long f5_38 = 38L * f5; /* 1.959375*2^30 */
+        long f6_19 = 19L * f6; /* 1.959375*2^30 */
+        long f7_38 = 38L * f7; /* 1.959375*2^30 */
+        long f8_19 = 19L * f8; /* 1.959375*2^30 */
+        long f9_38 = 38L * f9; /* 1.959375*2^30 */
         long f0f0    = f0   * (long) f0;
         long f0f1_2  = f0_2 * (long) f1;
         long f0f2_2  = f0_2 * (long) f2;
@@ -692,43 +966,43 @@ public class Ed25519FieldElement extends FieldElement {
         long f1f6_2  = f1_2 * (long) f6;
         long f1f7_4  = f1_2 * (long) f7_2;
         long f1f8_2  = f1_2 * (long) f8;
-        long f1f9_76 = f1_2 * (long) f9_38;
+        long f1f9_76 = f1_2 * f9_38;
         long f2f2    = f2   * (long) f2;
         long f2f3_2  = f2_2 * (long) f3;
         long f2f4_2  = f2_2 * (long) f4;
         long f2f5_2  = f2_2 * (long) f5;
         long f2f6_2  = f2_2 * (long) f6;
         long f2f7_2  = f2_2 * (long) f7;
-        long f2f8_38 = f2_2 * (long) f8_19;
-        long f2f9_38 = f2   * (long) f9_38;
+        long f2f8_38 = f2_2 * f8_19;
+        long f2f9_38 = f2   * f9_38;
         long f3f3_2  = f3_2 * (long) f3;
         long f3f4_2  = f3_2 * (long) f4;
         long f3f5_4  = f3_2 * (long) f5_2;
         long f3f6_2  = f3_2 * (long) f6;
-        long f3f7_76 = f3_2 * (long) f7_38;
-        long f3f8_38 = f3_2 * (long) f8_19;
-        long f3f9_76 = f3_2 * (long) f9_38;
+        long f3f7_76 = f3_2 * f7_38;
+        long f3f8_38 = f3_2 * f8_19;
+        long f3f9_76 = f3_2 * f9_38;
         long f4f4    = f4   * (long) f4;
         long f4f5_2  = f4_2 * (long) f5;
-        long f4f6_38 = f4_2 * (long) f6_19;
-        long f4f7_38 = f4   * (long) f7_38;
-        long f4f8_38 = f4_2 * (long) f8_19;
-        long f4f9_38 = f4   * (long) f9_38;
-        long f5f5_38 = f5   * (long) f5_38;
-        long f5f6_38 = f5_2 * (long) f6_19;
-        long f5f7_76 = f5_2 * (long) f7_38;
-        long f5f8_38 = f5_2 * (long) f8_19;
-        long f5f9_76 = f5_2 * (long) f9_38;
-        long f6f6_19 = f6   * (long) f6_19;
-        long f6f7_38 = f6   * (long) f7_38;
-        long f6f8_38 = f6_2 * (long) f8_19;
-        long f6f9_38 = f6   * (long) f9_38;
-        long f7f7_38 = f7   * (long) f7_38;
-        long f7f8_38 = f7_2 * (long) f8_19;
-        long f7f9_76 = f7_2 * (long) f9_38;
-        long f8f8_19 = f8   * (long) f8_19;
-        long f8f9_38 = f8   * (long) f9_38;
-        long f9f9_38 = f9   * (long) f9_38;
+        long f4f6_38 = f4_2 * f6_19;
+        long f4f7_38 = f4   * f7_38;
+        long f4f8_38 = f4_2 * f8_19;
+        long f4f9_38 = f4   * f9_38;
+        long f5f5_38 = f5   * f5_38;
+        long f5f6_38 = f5_2 * f6_19;
+        long f5f7_76 = f5_2 * f7_38;
+        long f5f8_38 = f5_2 * f8_19;
+        long f5f9_76 = f5_2 * f9_38;
+        long f6f6_19 = f6   * f6_19;
+        long f6f7_38 = f6   * f7_38;
+        long f6f8_38 = f6_2 * f8_19;
+        long f6f9_38 = f6   * f9_38;
+        long f7f7_38 = f7   * f7_38;
+        long f7f8_38 = f7_2 * f8_19;
+        long f7f9_76 = f7_2 * f9_38;
+        long f8f8_19 = f8   * f8_19;
+        long f8f9_38 = f8   * f9_38;
+        long f9f9_38 = f9   * f9_38;
         long h0 = f0f0   + f1f9_76 + f2f8_38 + f3f7_76 + f4f6_38 + f5f5_38;
         long h1 = f0f1_2 + f2f9_38 + f3f8_38 + f4f7_38 + f5f6_38;
         long h2 = f0f2_2 + f1f1_2  + f3f9_76 + f4f8_38 + f5f7_76 + f6f6_19;
@@ -780,7 +1054,6 @@ public class Ed25519FieldElement extends FieldElement {
 
         carry0 = (h0 + (long) (1<<25)) >> 26; h1 += carry0; h0 -= carry0 << 26;
 
-        int[] h = new int[10];
         h[0] = (int) h0;
         h[1] = (int) h1;
         h[2] = (int) h2;
@@ -791,7 +1064,6 @@ public class Ed25519FieldElement extends FieldElement {
         h[7] = (int) h7;
         h[8] = (int) h8;
         h[9] = (int) h9;
-        return new Ed25519FieldElement(f, h);
     }
 
     /**
@@ -800,119 +1072,83 @@ public class Ed25519FieldElement extends FieldElement {
      * The inverse is found via Fermat's little theorem:<br>
      * $a^p \cong a \mod p$ and therefore $a^{(p-2)} \cong a^{-1} \mod p$
      *
-     * @return The inverse of this field element.
+     * @param out The destination.
+     * @param z The field element to invert.
      */
-    public FieldElement invert() {
-        FieldElement t0, t1, t2, t3;
+    public static void invert(int[] out, int[] z) {
+        invert(out, z, new int[10], new int[10], new int[10], new int[10]);
+    }
 
+    /**
+     * Same as {@link #invert(int[], int[])}, with the given temporaries instead of new ones. They must be
+     * distinct from each other and from z, out may be any of them or z.
+     */
+    public static void invert(int[] out, int[] z, int[] t0, int[] t1, int[] t2, int[] t3) {
         // 2 == 2 * 1
-        t0 = square();
+        sqr(t0, z);
 
-        // 4 == 2 * 2
-        t1 = t0.square();
-
-        // 8 == 2 * 4
-        t1 = t1.square();
+        // 8 == 2 * 2 * 2
+        sqrN(t1, t0, 2);
 
         // 9 == 8 + 1
-        t1 = multiply(t1);
+        mul(t1, z, t1);
 
         // 11 == 9 + 2
-        t0 = t0.multiply(t1);
+        mul(t0, t0, t1);
 
         // 22 == 2 * 11
-        t2 = t0.square();
+        sqr(t2, t0);
 
         // 31 == 22 + 9
-        t1 = t1.multiply(t2);
-
-        // 2^6 - 2^1
-        t2 = t1.square();
+        mul(t1, t1, t2);
 
         // 2^10 - 2^5
-        for (int i = 1; i < 5; ++i) {
-            t2 = t2.square();
-        }
+        sqrN(t2, t1, 5);
 
         // 2^10 - 2^0
-        t1 = t2.multiply(t1);
-
-        // 2^11 - 2^1
-        t2 = t1.square();
+        mul(t1, t2, t1);
 
         // 2^20 - 2^10
-        for (int i = 1; i < 10; ++i) {
-            t2 = t2.square();
-        }
+        sqrN(t2, t1, 10);
 
         // 2^20 - 2^0
-        t2 = t2.multiply(t1);
-
-        // 2^21 - 2^1
-        t3 = t2.square();
+        mul(t2, t2, t1);
 
         // 2^40 - 2^20
-        for (int i = 1; i < 20; ++i) {
-            t3 = t3.square();
-        }
+        sqrN(t3, t2, 20);
 
         // 2^40 - 2^0
-        t2 = t3.multiply(t2);
-
-        // 2^41 - 2^1
-        t2 = t2.square();
+        mul(t2, t3, t2);
 
         // 2^50 - 2^10
-        for (int i = 1; i < 10; ++i) {
-            t2 = t2.square();
-        }
+        sqrN(t2, t2, 10);
 
         // 2^50 - 2^0
-        t1 = t2.multiply(t1);
-
-        // 2^51 - 2^1
-        t2 = t1.square();
+        mul(t1, t2, t1);
 
         // 2^100 - 2^50
-        for (int i = 1; i < 50; ++i) {
-            t2 = t2.square();
-        }
+        sqrN(t2, t1, 50);
 
         // 2^100 - 2^0
-        t2 = t2.multiply(t1);
-
-        // 2^101 - 2^1
-        t3 = t2.square();
+        mul(t2, t2, t1);
 
         // 2^200 - 2^100
-        for (int i = 1; i < 100; ++i) {
-            t3 = t3.square();
-        }
+        sqrN(t3, t2, 100);
 
         // 2^200 - 2^0
-        t2 = t3.multiply(t2);
-
-        // 2^201 - 2^1
-        t2 = t2.square();
+        mul(t2, t3, t2);
 
         // 2^250 - 2^50
-        for (int i = 1; i < 50; ++i) {
-            t2 = t2.square();
-        }
+        sqrN(t2, t2, 50);
 
         // 2^250 - 2^0
-        t1 = t2.multiply(t1);
-
-        // 2^251 - 2^1
-        t1 = t1.square();
+        mul(t1, t2, t1);
 
         // 2^255 - 2^5
-        for (int i = 1; i < 5; ++i) {
-            t1 = t1.square();
-        }
+        sqrN(t1, t1, 5);
 
         // 2^255 - 21
-        return t1.multiply(t0);
+        mul(out, t1, t0);
     }
 
     /**
@@ -921,140 +1157,83 @@ public class Ed25519FieldElement extends FieldElement {
      * <p>
      * TODO-CR BR: I think it makes sense to have a sqrt function.
      *
-     * @return This field element to the power of $(2^{252} - 3)$.
+     * @param out The destination.
+     * @param z The base.
      */
-    public FieldElement pow22523() {
-        FieldElement t0, t1, t2;
+    public static void pow22523(int[] out, int[] z) {
+        pow22523(out, z, new int[10], new int[10], new int[10]);
+    }
 
+    /**
+     * Same as {@link #pow22523(int[], int[])}, with the given temporaries instead of new ones. They must be
+     * distinct from each other and from z, out may be any of them or z.
+     */
+    public static void pow22523(int[] out, int[] z, int[] t0, int[] t1, int[] t2) {
         // 2 == 2 * 1
-        t0 = square();
+        sqr(t0, z);
 
-        // 4 == 2 * 2
-        t1 = t0.square();
-
-        // 8 == 2 * 4
-        t1 = t1.square();
+        // 8 == 2 * 2 * 2
+        sqrN(t1, t0, 2);
 
         // z9 = z1*z8
-        t1 = multiply(t1);
+        mul(t1, z, t1);
 
         // 11 == 9 + 2
-        t0 = t0.multiply(t1);
+        mul(t0, t0, t1);
 
         // 22 == 2 * 11
-        t0 = t0.square();
+        sqr(t0, t0);
 
         // 31 == 22 + 9
-        t0 = t1.multiply(t0);
-
-        // 2^6 - 2^1
-        t1 = t0.square();
+        mul(t0, t1, t0);
 
         // 2^10 - 2^5
-        for (int i = 1; i < 5; ++i) {
-            t1 = t1.square();
-        }
+        sqrN(t1, t0, 5);
 
         // 2^10 - 2^0
-        t0 = t1.multiply(t0);
-
-        // 2^11 - 2^1
-        t1 = t0.square();
+        mul(t0, t1, t0);
 
         // 2^20 - 2^10
-        for (int i = 1; i < 10; ++i) {
-            t1 = t1.square();
-        }
+        sqrN(t1, t0, 10);
 
         // 2^20 - 2^0
-        t1 = t1.multiply(t0);
-
-        // 2^21 - 2^1
-        t2 = t1.square();
+        mul(t1, t1, t0);
 
         // 2^40 - 2^20
-        for (int i = 1; i < 20; ++i) {
-            t2 = t2.square();
-        }
+        sqrN(t2, t1, 20);
 
         // 2^40 - 2^0
-        t1 = t2.multiply(t1);
-
-        // 2^41 - 2^1
-        t1 = t1.square();
+        mul(t1, t2, t1);
 
         // 2^50 - 2^10
-        for (int i = 1; i < 10; ++i) {
-            t1 = t1.square();
-        }
+        sqrN(t1, t1, 10);
 
         // 2^50 - 2^0
-        t0 = t1.multiply(t0);
-
-        // 2^51 - 2^1
-        t1 = t0.square();
+        mul(t0, t1, t0);
 
         // 2^100 - 2^50
-        for (int i = 1; i < 50; ++i) {
-            t1 = t1.square();
-        }
+        sqrN(t1, t0, 50);
 
         // 2^100 - 2^0
-        t1 = t1.multiply(t0);
-
-        // 2^101 - 2^1
-        t2 = t1.square();
+        mul(t1, t1, t0);
 
         // 2^200 - 2^100
-        for (int i = 1; i < 100; ++i) {
-            t2 = t2.square();
-        }
+        sqrN(t2, t1, 100);
 
         // 2^200 - 2^0
-        t1 = t2.multiply(t1);
-
-        // 2^201 - 2^1
-        t1 = t1.square();
+        mul(t1, t2, t1);
 
         // 2^250 - 2^50
-        for (int i = 1; i < 50; ++i) {
-            t1 = t1.square();
-        }
+        sqrN(t1, t1, 50);
 
         // 2^250 - 2^0
-        t0 = t1.multiply(t0);
-
-        // 2^251 - 2^1
-        t0 = t0.square();
+        mul(t0, t1, t0);
 
         // 2^252 - 2^2
-        t0 = t0.square();
+        sqrN(t0, t0, 2);
 
         // 2^252 - 3
-        return multiply(t0);
-    }
-
-    /**
-     * Constant-time conditional move. Well, actually it is a conditional copy.
-     * Logic is inspired by the SUPERCOP implementation at:
-     *   https://github.com/floodyberry/supercop/blob/master/crypto_sign/ed25519/ref10/fe_cmov.c
-     *
-     * @param val the other field element.
-     * @param b must be 0 or 1, otherwise results are undefined.
-     * @return a copy of this if $b == 0$, or a copy of val if $b == 1$.
-     */
-    @Override
-    public FieldElement cmov(FieldElement val, int b) {
-        Ed25519FieldElement that = (Ed25519FieldElement) val;
-        b = -b;
-        int[] result = new int[10];
-        for (int i = 0; i < 10; i++) {
-            result[i] = this.t[i];
-            int x = this.t[i] ^ that.t[i];
-            x &= b;
-            result[i] ^= x;
-        }
-        return new Ed25519FieldElement(this.f, result);
+        mul(out, z, t0);
     }
 
     @Override
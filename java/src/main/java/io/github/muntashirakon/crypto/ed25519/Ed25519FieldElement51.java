@@ -0,0 +1,864 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.ed25519;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+
+/**
+ * Class to represent a field element of the finite field $p = 2^{255} - 19$ elements using five 51-bit limbs.
+ * <p>
+ * An element $t$, entries $t[0] \dots t[4]$, represents the integer
+ * $t[0]+2^{51} t[1]+2^{102} t[2]+2^{153} t[3]+2^{204} t[4]$.
+ * All limbs are non-negative. A limb is <i>tight</i> if it is bounded by $2^{51}+2^{13}$, which is the case for the
+ * output of every operation except {@link #add(long[], long[], long[])} and {@link #sqr2(long[], long[])}.
+ * <p>
+ * This representation is meant for 64-bit platforms. The 128-bit limb products are computed with
+ * {@code Math.multiplyHigh()} when the runtime provides it (Java 9+), and with a portable fallback otherwise.
+ *
+ * @see Ed25519FieldElement
+ */
+public class Ed25519FieldElement51 extends FieldElement {
+    private static final long MASK_51 = 0x7FFFFFFFFFFFFL;
+
+    private static final MethodHandle MULTIPLY_HIGH = findMultiplyHigh();
+
+    /**
+     * Variable is package private for encoding.
+     */
+    protected final long[] t;
+
+    /**
+     * Creates a field element.
+     *
+     * @param f The underlying field, must be the finite field with $p = 2^{255} - 19$ elements
+     * @param t The $2^{51}$ bit representation of the field element.
+     */
+    public Ed25519FieldElement51(Ed25519Field f, long[] t) {
+        super(f);
+        if (t.length != 5)
+            throw new IllegalArgumentException("Invalid radix-2^51 representation");
+        this.t = t;
+    }
+
+    private static final byte[] ZERO = new byte[32];
+
+    /**
+     * @return {@code true} if {@code Math.multiplyHigh()} is available in this runtime, {@code false} if the portable
+     * fallback is used instead.
+     */
+    public static boolean hasMultiplyHigh() {
+        return MULTIPLY_HIGH != null;
+    }
+
+    /**
+     * Gets a value indicating whether the field element is non-zero.
+     *
+     * @return 1 if it is non-zero, 0 otherwise.
+     */
+    public boolean isNonZero() {
+        final byte[] s = toByteArray();
+        return Utils.equal(s, ZERO) == 0;
+    }
+
+    /**
+     * $h = f + g$
+     *
+     * @param val The field element to add.
+     * @return The field element this + val.
+     * @see #add(long[], long[], long[])
+     */
+    public FieldElement add(FieldElement val) {
+        long[] h = new long[5];
+        add(h, t, ((Ed25519FieldElement51) val).t);
+        return new Ed25519FieldElement51(f, h);
+    }
+
+    /**
+     * $h = f - g$
+     *
+     * @param val The field element to subtract.
+     * @return The field element this - val.
+     * @see #sub(long[], long[], long[])
+     */
+    public FieldElement subtract(FieldElement val) {
+        long[] h = new long[5];
+        sub(h, t, ((Ed25519FieldElement51) val).t);
+        return new Ed25519FieldElement51(f, h);
+    }
+
+    /**
+     * $h = -f$
+     *
+     * @return The field element (-1) * this.
+     * @see #neg(long[], long[])
+     */
+    public FieldElement negate() {
+        long[] h = new long[5];
+        neg(h, t);
+        return new Ed25519FieldElement51(f, h);
+    }
+
+    /**
+     * $h = f * g$
+     *
+     * @param val The field element to multiply.
+     * @return The (reasonably reduced) field element this * val.
+     * @see #mul(long[], long[], long[])
+     */
+    public FieldElement multiply(FieldElement val) {
+        long[] h = new long[5];
+        mul(h, t, ((Ed25519FieldElement51) val).t);
+        return new Ed25519FieldElement51(f, h);
+    }
+
+    /**
+     * $h = f * f$
+     *
+     * @return The (reasonably reduced) square of this field element.
+     * @see #sqr(long[], long[])
+     */
+    public FieldElement square() {
+        long[] h = new long[5];
+        sqr(h, t);
+        return new Ed25519FieldElement51(f, h);
+    }
+
+    /**
+     * $h = f^{2^n}$
+     *
+     * @param n The number of squarings, must be at least 1.
+     * @return The (reasonably reduced) field element this^(2^n).
+     * @see #sqrN(long[], long[], int)
+     */
+    public FieldElement squareN(int n) {
+        long[] h = new long[5];
+        sqrN(h, t, n);
+        return new Ed25519FieldElement51(f, h);
+    }
+
+    /**
+     * $h = 2 * f * f$
+     *
+     * @return The (reasonably reduced) square of this field element times 2.
+     * @see #sqr2(long[], long[])
+     */
+    public FieldElement squareAndDouble() {
+        long[] h = new long[5];
+        sqr2(h, t);
+        return new Ed25519FieldElement51(f, h);
+    }
+
+    /**
+     * Invert this field element.
+     * <p>
+     * The inverse is found via Fermat's little theorem:<br>
+     * $a^p \cong a \mod p$ and therefore $a^{(p-2)} \cong a^{-1} \mod p$
+     *
+     * @return The inverse of this field element.
+     */
+    public FieldElement invert() {
+        long[] h = new long[5];
+        invert(h, t);
+        return new Ed25519FieldElement51(f, h);
+    }
+
+    /**
+     * Gets this field element to the power of $(2^{252} - 3)$.
+     * This is a helper function for calculating the square root.
+     *
+     * @return This field element to the power of $(2^{252} - 3)$.
+     */
+    public FieldElement pow22523() {
+        long[] h = new long[5];
+        pow22523(h, t);
+        return new Ed25519FieldElement51(f, h);
+    }
+
+    /**
+     * Constant-time conditional move.
+     *
+     * @param val the other field element.
+     * @param b must be 0 or 1, otherwise results are undefined.
+     * @return a copy of this if $b == 0$, or a copy of val if $b == 1$.
+     */
+    @Override
+    public FieldElement cmov(FieldElement val, int b) {
+        long[] h = t.clone();
+        cmov(h, ((Ed25519FieldElement51) val).t, b);
+        return new Ed25519FieldElement51(this.f, h);
+    }
+
+    @Override
+    public FieldElement set(FieldElement val) {
+        copy(t, ((Ed25519FieldElement51) val).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setSum(FieldElement a, FieldElement b) {
+        add(t, ((Ed25519FieldElement51) a).t, ((Ed25519FieldElement51) b).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setDifference(FieldElement a, FieldElement b) {
+        sub(t, ((Ed25519FieldElement51) a).t, ((Ed25519FieldElement51) b).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setNegation(FieldElement a) {
+        neg(t, ((Ed25519FieldElement51) a).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setProduct(FieldElement a, FieldElement b) {
+        mul(t, ((Ed25519FieldElement51) a).t, ((Ed25519FieldElement51) b).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setSquare(FieldElement a) {
+        sqr(t, ((Ed25519FieldElement51) a).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setSquareN(FieldElement a, int n) {
+        sqrN(t, ((Ed25519FieldElement51) a).t, n);
+        return this;
+    }
+
+    @Override
+    public FieldElement setSquareAndDouble(FieldElement a) {
+        sqr2(t, ((Ed25519FieldElement51) a).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setInverse(FieldElement a) {
+        invert(t, ((Ed25519FieldElement51) a).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setInverse(FieldElement a, FieldElement t0, FieldElement t1, FieldElement t2,
+                                   FieldElement t3) {
+        invert(t, ((Ed25519FieldElement51) a).t, ((Ed25519FieldElement51) t0).t, ((Ed25519FieldElement51) t1).t,
+                ((Ed25519FieldElement51) t2).t, ((Ed25519FieldElement51) t3).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setPow22523(FieldElement a) {
+        pow22523(t, ((Ed25519FieldElement51) a).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setPow22523(FieldElement a, FieldElement t0, FieldElement t1, FieldElement t2) {
+        pow22523(t, ((Ed25519FieldElement51) a).t, ((Ed25519FieldElement51) t0).t, ((Ed25519FieldElement51) t1).t,
+                ((Ed25519FieldElement51) t2).t);
+        return this;
+    }
+
+    @Override
+    public FieldElement setCmov(FieldElement val, int b) {
+        cmov(t, ((Ed25519FieldElement51) val).t, b);
+        return this;
+    }
+
+    /**
+     * Limb $i$ is stored as its low 32 bits followed by its high 32 bits.
+     */
+    @Override
+    public FieldElement setCmovPacked(int[] src, int offset, int b) {
+        long mask = -b;
+        for (int i = 0; i < 5; i++) {
+            long v = (src[offset + 2 * i] & 0xFFFFFFFFL) | ((long) src[offset + 2 * i + 1] << 32);
+            long x = t[i] ^ v;
+            x &= mask;
+            t[i] ^= x;
+        }
+        return this;
+    }
+
+    /**
+     * Limb $i$ is stored as its low 32 bits followed by its high 32 bits.
+     */
+    @Override
+    public void pack(int[] dst, int offset) {
+        for (int i = 0; i < 5; i++) {
+            dst[offset + 2 * i] = (int) t[i];
+            dst[offset + 2 * i + 1] = (int) (t[i] >>> 32);
+        }
+    }
+
+    /**
+     * $h = f + g$
+     * <p>
+     * Can overlap $h$ with $f$ or $g$. The result is not carried.
+     * <p>
+     * Preconditions:
+     * </p><ul>
+     * <li>$f$ and $g$ bounded by $2^{53}$.
+     * </ul><p>
+     * Postconditions:
+     * </p><ul>
+     * <li>$h$ bounded by $2^{54}$.
+     * </ul>
+     *
+     * @param h The destination.
+     * @param f The first summand.
+     * @param g The second summand.
+     */
+    public static void add(long[] h, long[] f, long[] g) {
+        for (int i = 0; i < 5; i++) {
+            h[i] = f[i] + g[i];
+        }
+    }
+
+    /**
+     * $h = f - g$
+     * <p>
+     * Can overlap $h$ with $f$ or $g$. $16 p$ is added before subtracting so that every limb stays non-negative.
+     * <p>
+     * Preconditions:
+     * </p><ul>
+     * <li>$f$ and $g$ bounded by $2^{54}$.
+     * </ul><p>
+     * Postconditions:
+     * </p><ul>
+     * <li>$h$ is tight.
+     * </ul>
+     *
+     * @param h The destination.
+     * @param f The minuend.
+     * @param g The subtrahend.
+     */
+    public static void sub(long[] h, long[] f, long[] g) {
+        long h0 = f[0] + 0x7FFFFFFFFFFED0L - g[0];
+        long h1 = f[1] + 0x7FFFFFFFFFFFF0L - g[1];
+        long h2 = f[2] + 0x7FFFFFFFFFFFF0L - g[2];
+        long h3 = f[3] + 0x7FFFFFFFFFFFF0L - g[3];
+        long h4 = f[4] + 0x7FFFFFFFFFFFF0L - g[4];
+        carry(h, h0, h1, h2, h3, h4);
+    }
+
+    /**
+     * $h = -f$
+     * <p>
+     * Can overlap $h$ with $f$.
+     * <p>
+     * Preconditions:
+     * </p><ul>
+     * <li>$f$ bounded by $2^{54}$.
+     * </ul><p>
+     * Postconditions:
+     * </p><ul>
+     * <li>$h$ is tight.
+     * </ul>
+     *
+     * @param h The destination.
+     * @param f The field element to negate.
+     */
+    public static void neg(long[] h, long[] f) {
+        long h0 = 0x7FFFFFFFFFFED0L - f[0];
+        long h1 = 0x7FFFFFFFFFFFF0L - f[1];
+        long h2 = 0x7FFFFFFFFFFFF0L - f[2];
+        long h3 = 0x7FFFFFFFFFFFF0L - f[3];
+        long h4 = 0x7FFFFFFFFFFFF0L - f[4];
+        carry(h, h0, h1, h2, h3, h4);
+    }
+
+    /**
+     * $h = f$
+     *
+     * @param h The destination.
+     * @param f The field element to copy.
+     */
+    public static void copy(long[] h, long[] f) {
+        System.arraycopy(f, 0, h, 0, 5);
+    }
+
+    /**
+     * Constant-time conditional move. Replaces $f$ with $g$ if $b == 1$, leaves $f$ unchanged if $b == 0$.
+     *
+     * @param f The destination.
+     * @param g The field element to copy if $b == 1$.
+     * @param b must be 0 or 1, otherwise results are undefined.
+     */
+    public static void cmov(long[] f, long[] g, int b) {
+        long mask = -b;
+        for (int i = 0; i < 5; i++) {
+            long x = f[i] ^ g[i];
+            x &= mask;
+            f[i] ^= x;
+        }
+    }
+
+    /**
+     * $h = f * g$
+     * <p>
+     * Can overlap $h$ with $f$ or $g$.
+     * <p>
+     * Each output coefficient $t_k = \sum_{i+j \equiv k} f_i g_j$ (where the terms with $i+j \ge 5$ are multiplied by
+     * 19, since $2^{255} \equiv 19$) is a 128-bit value. It is accumulated as $t_k = hi_k * 2^{51} + lo_k$, where
+     * $lo_k$ collects the low 51 bits of each product and $hi_k$ the remaining bits, so that both fit in a (treated as
+     * unsigned) {@code long}.
+     * <p>
+     * Preconditions:
+     * </p><ul>
+     * <li>$f$ and $g$ bounded by $2^{54}$.
+     * </ul><p>
+     * Postconditions:
+     * </p><ul>
+     * <li>$h$ is tight.
+     * </ul>
+     *
+     * @param h The destination.
+     * @param f The first factor.
+     * @param g The second factor.
+     */
+    public static void mul(long[] h, long[] f, long[] g) {
+        long f0 = f[0];
+        long f1 = f[1];
+        long f2 = f[2];
+        long f3 = f[3];
+        long f4 = f[4];
+        long g0 = g[0];
+        long g1 = g[1];
+        long g2 = g[2];
+        long g3 = g[3];
+        long g4 = g[4];
+        long g1_19 = 19 * g1;
+        long g2_19 = 19 * g2;
+        long g3_19 = 19 * g3;
+        long g4_19 = 19 * g4;
+
+        long lo0 = lo51(f0, g0) + lo51(f1, g4_19) + lo51(f2, g3_19) + lo51(f3, g2_19) + lo51(f4, g1_19);
+        long hi0 = hi51(f0, g0) + hi51(f1, g4_19) + hi51(f2, g3_19) + hi51(f3, g2_19) + hi51(f4, g1_19);
+        long lo1 = lo51(f0, g1) + lo51(f1, g0) + lo51(f2, g4_19) + lo51(f3, g3_19) + lo51(f4, g2_19);
+        long hi1 = hi51(f0, g1) + hi51(f1, g0) + hi51(f2, g4_19) + hi51(f3, g3_19) + hi51(f4, g2_19);
+        long lo2 = lo51(f0, g2) + lo51(f1, g1) + lo51(f2, g0) + lo51(f3, g4_19) + lo51(f4, g3_19);
+        long hi2 = hi51(f0, g2) + hi51(f1, g1) + hi51(f2, g0) + hi51(f3, g4_19) + hi51(f4, g3_19);
+        long lo3 = lo51(f0, g3) + lo51(f1, g2) + lo51(f2, g1) + lo51(f3, g0) + lo51(f4, g4_19);
+        long hi3 = hi51(f0, g3) + hi51(f1, g2) + hi51(f2, g1) + hi51(f3, g0) + hi51(f4, g4_19);
+        long lo4 = lo51(f0, g4) + lo51(f1, g3) + lo51(f2, g2) + lo51(f3, g1) + lo51(f4, g0);
+        long hi4 = hi51(f0, g4) + hi51(f1, g3) + hi51(f2, g2) + hi51(f3, g1) + hi51(f4, g0);
+
+        reduce(h, lo0, hi0, lo1, hi1, lo2, hi2, lo3, hi3, lo4, hi4);
+    }
+
+    /**
+     * $h = f * f$
+     * <p>
+     * Can overlap $h$ with $f$.
+     * <p>
+     * Preconditions:
+     * </p><ul>
+     * <li>$f$ bounded by $2^{54}$.
+     * </ul><p>
+     * Postconditions:
+     * </p><ul>
+     * <li>$h$ is tight.
+     * </ul>
+     *
+     * @param h The destination.
+     * @param f The field element to square.
+     * @see #mul(long[], long[], long[])
+     */
+    public static void sqr(long[] h, long[] f) {
+        sqrN(h, f, 1);
+    }
+
+    /**
+     * $h = f^{2^n}$, i.e. $n$ successive squarings of $f$, for $n \ge 1$. The limbs are kept in local variables
+     * between the squarings.
+     * <p>
+     * Can overlap $h$ with $f$.
+     * <p>
+     * Preconditions and postconditions are those of {@link #sqr(long[], long[])}.
+     *
+     * @param h The destination.
+     * @param f The field element to square.
+     * @param n The number of squarings.
+     */
+    public static void sqrN(long[] h, long[] f, int n) {
+        long f0 = f[0];
+        long f1 = f[1];
+        long f2 = f[2];
+        long f3 = f[3];
+        long f4 = f[4];
+        for (int i = 0; i < n; ++i) {
+            long f0_2 = 2 * f0;
+            long f1_2 = 2 * f1;
+            long f2_2 = 2 * f2;
+            long f3_2 = 2 * f3;
+            long f3_19 = 19 * f3;
+            long f4_19 = 19 * f4;
+
+            long lo0 = lo51(f0, f0) + lo51(f1_2, f4_19) + lo51(f2_2, f3_19);
+            long hi0 = hi51(f0, f0) + hi51(f1_2, f4_19) + hi51(f2_2, f3_19);
+            long lo1 = lo51(f0_2, f1) + lo51(f2_2, f4_19) + lo51(f3, f3_19);
+            long hi1 = hi51(f0_2, f1) + hi51(f2_2, f4_19) + hi51(f3, f3_19);
+            long lo2 = lo51(f0_2, f2) + lo51(f1, f1) + lo51(f3_2, f4_19);
+            long hi2 = hi51(f0_2, f2) + hi51(f1, f1) + hi51(f3_2, f4_19);
+            long lo3 = lo51(f0_2, f3) + lo51(f1_2, f2) + lo51(f4, f4_19);
+            long hi3 = hi51(f0_2, f3) + hi51(f1_2, f2) + hi51(f4, f4_19);
+            long lo4 = lo51(f0_2, f4) + lo51(f1_2, f3) + lo51(f2, f2);
+            long hi4 = hi51(f0_2, f4) + hi51(f1_2, f3) + hi51(f2, f2);
+
+            // See reduce()
+            long c;
+            c = hi0 + (lo0 >>> 51); lo0 &= MASK_51;
+            lo1 += c & MASK_51; hi1 += c >>> 51;
+            c = hi1 + (lo1 >>> 51); lo1 &= MASK_51;
+            lo2 += c & MASK_51; hi2 += c >>> 51;
+            c = hi2 + (lo2 >>> 51); lo2 &= MASK_51;
+            lo3 += c & MASK_51; hi3 += c >>> 51;
+            c = hi3 + (lo3 >>> 51); lo3 &= MASK_51;
+            lo4 += c & MASK_51; hi4 += c >>> 51;
+            c = hi4 + (lo4 >>> 51); lo4 &= MASK_51;
+            lo0 += c * 19;
+            lo1 += lo0 >>> 51; lo0 &= MASK_51;
+
+            f0 = lo0;
+            f1 = lo1;
+            f2 = lo2;
+            f3 = lo3;
+            f4 = lo4;
+        }
+        h[0] = f0;
+        h[1] = f1;
+        h[2] = f2;
+        h[3] = f3;
+        h[4] = f4;
+    }
+
+    /**
+     * $h = 2 * f * f$
+     * <p>
+     * Can overlap $h$ with $f$.
+     * <p>
+     * Preconditions:
+     * </p><ul>
+     * <li>$f$ bounded by $2^{54}$.
+     * </ul><p>
+     * Postconditions:
+     * </p><ul>
+     * <li>$h$ bounded by $2^{52}+2^{14}$.
+     * </ul>
+     *
+     * @param h The destination.
+     * @param f The field element to square.
+     */
+    public static void sqr2(long[] h, long[] f) {
+        sqr(h, f);
+        for (int i = 0; i < 5; i++) {
+            h[i] += h[i];
+        }
+    }
+
+    /**
+     * Invert this field element.
+     * <p>
+     * The inverse is found via Fermat's little theorem:<br>
+     * $a^p \cong a \mod p$ and therefore $a^{(p-2)} \cong a^{-1} \mod p$
+     *
+     * @param out The destination.
+     * @param z The field element to invert.
+     * @see Ed25519FieldElement#invert(int[], int[])
+     */
+    public static void invert(long[] out, long[] z) {
+        invert(out, z, new long[5], new long[5], new long[5], new long[5]);
+    }
+
+    /**
+     * Same as {@link #invert(long[], long[])}, with the given temporaries instead of new ones. They must be
+     * distinct from each other and from z, out may be any of them or z.
+     */
+    public static void invert(long[] out, long[] z, long[] t0, long[] t1, long[] t2, long[] t3) {
+        // 2 == 2 * 1
+        sqr(t0, z);
+
+        // 8 == 2 * 2 * 2
+        sqrN(t1, t0, 2);
+
+        // 9 == 8 + 1
+        mul(t1, z, t1);
+
+        // 11 == 9 + 2
+        mul(t0, t0, t1);
+
+        // 22 == 2 * 11
+        sqr(t2, t0);
+
+        // 31 == 22 + 9
+        mul(t1, t1, t2);
+
+        // 2^10 - 2^5
+        sqrN(t2, t1, 5);
+
+        // 2^10 - 2^0
+        mul(t1, t2, t1);
+
+        // 2^20 - 2^10
+        sqrN(t2, t1, 10);
+
+        // 2^20 - 2^0
+        mul(t2, t2, t1);
+
+        // 2^40 - 2^20
+        sqrN(t3, t2, 20);
+
+        // 2^40 - 2^0
+        mul(t2, t3, t2);
+
+        // 2^50 - 2^10
+        sqrN(t2, t2, 10);
+
+        // 2^50 - 2^0
+        mul(t1, t2, t1);
+
+        // 2^100 - 2^50
+        sqrN(t2, t1, 50);
+
+        // 2^100 - 2^0
+        mul(t2, t2, t1);
+
+        // 2^200 - 2^100
+        sqrN(t3, t2, 100);
+
+        // 2^200 - 2^0
+        mul(t2, t3, t2);
+
+        // 2^250 - 2^50
+        sqrN(t2, t2, 50);
+
+        // 2^250 - 2^0
+        mul(t1, t2, t1);
+
+        // 2^255 - 2^5
+        sqrN(t1, t1, 5);
+
+        // 2^255 - 21
+        mul(out, t1, t0);
+    }
+
+    /**
+     * Gets this field element to the power of $(2^{252} - 3)$.
+     * This is a helper function for calculating the square root.
+     *
+     * @param out The destination.
+     * @param z The base.
+     * @see Ed25519FieldElement#pow22523(int[], int[])
+     */
+    public static void pow22523(long[] out, long[] z) {
+        pow22523(out, z, new long[5], new long[5], new long[5]);
+    }
+
+    /**
+     * Same as {@link #pow22523(long[], long[])}, with the given temporaries instead of new ones. They must be
+     * distinct from each other and from z, out may be any of them or z.
+     */
+    public static void pow22523(long[] out, long[] z, long[] t0, long[] t1, long[] t2) {
+        // 2 == 2 * 1
+        sqr(t0, z);
+
+        // 8 == 2 * 2 * 2
+        sqrN(t1, t0, 2);
+
+        // z9 = z1*z8
+        mul(t1, z, t1);
+
+        // 11 == 9 + 2
+        mul(t0, t0, t1);
+
+        // 22 == 2 * 11
+        sqr(t0, t0);
+
+        // 31 == 22 + 9
+        mul(t0, t1, t0);
+
+        // 2^10 - 2^5
+        sqrN(t1, t0, 5);
+
+        // 2^10 - 2^0
+        mul(t0, t1, t0);
+
+        // 2^20 - 2^10
+        sqrN(t1, t0, 10);
+
+        // 2^20 - 2^0
+        mul(t1, t1, t0);
+
+        // 2^40 - 2^20
+        sqrN(t2, t1, 20);
+
+        // 2^40 - 2^0
+        mul(t1, t2, t1);
+
+        // 2^50 - 2^10
+        sqrN(t1, t1, 10);
+
+        // 2^50 - 2^0
+        mul(t0, t1, t0);
+
+        // 2^100 - 2^50
+        sqrN(t1, t0, 50);
+
+        // 2^100 - 2^0
+        mul(t1, t1, t0);
+
+        // 2^200 - 2^100
+        sqrN(t2, t1, 100);
+
+        // 2^200 - 2^0
+        mul(t1, t2, t1);
+
+        // 2^250 - 2^50
+        sqrN(t1, t1, 50);
+
+        // 2^250 - 2^0
+        mul(t0, t1, t0);
+
+        // 2^252 - 2^2
+        sqrN(t0, t0, 2);
+
+        // 2^252 - 3
+        mul(out, z, t0);
+    }
+
+    @Override
+    public FieldElement carry() {
+        long[] h = new long[5];
+        carry(h, t[0], t[1], t[2], t[3], t[4]);
+        return new Ed25519FieldElement51(this.f, h);
+    }
+
+    /**
+     * Propagates the carries of the given non-negative limbs (each less than $2^{63}$) into $h$, which then is tight.
+     */
+    private static void carry(long[] h, long h0, long h1, long h2, long h3, long h4) {
+        h1 += h0 >>> 51; h0 &= MASK_51;
+        h2 += h1 >>> 51; h1 &= MASK_51;
+        h3 += h2 >>> 51; h2 &= MASK_51;
+        h4 += h3 >>> 51; h3 &= MASK_51;
+        h0 += (h4 >>> 51) * 19; h4 &= MASK_51;
+        h1 += h0 >>> 51; h0 &= MASK_51;
+        h[0] = h0;
+        h[1] = h1;
+        h[2] = h2;
+        h[3] = h3;
+        h[4] = h4;
+    }
+
+    /**
+     * Reduces the coefficients $t_k = hi_k * 2^{51} + lo_k$ of a product into $h$. All values are unsigned.
+     */
+    private static void reduce(long[] h, long lo0, long hi0, long lo1, long hi1, long lo2, long hi2, long lo3,
+                               long hi3, long lo4, long hi4) {
+        long c;
+        c = hi0 + (lo0 >>> 51); lo0 &= MASK_51;
+        lo1 += c & MASK_51; hi1 += c >>> 51;
+        c = hi1 + (lo1 >>> 51); lo1 &= MASK_51;
+        lo2 += c & MASK_51; hi2 += c >>> 51;
+        c = hi2 + (lo2 >>> 51); lo2 &= MASK_51;
+        lo3 += c & MASK_51; hi3 += c >>> 51;
+        c = hi3 + (lo3 >>> 51); lo3 &= MASK_51;
+        lo4 += c & MASK_51; hi4 += c >>> 51;
+        c = hi4 + (lo4 >>> 51); lo4 &= MASK_51;
+        // 2^255 = 19
+        lo0 += c * 19;
+        lo1 += lo0 >>> 51; lo0 &= MASK_51;
+        h[0] = lo0;
+        h[1] = lo1;
+        h[2] = lo2;
+        h[3] = lo3;
+        h[4] = lo4;
+    }
+
+    /**
+     * @return The low 51 bits of $a * b$.
+     */
+    private static long lo51(long a, long b) {
+        return (a * b) & MASK_51;
+    }
+
+    /**
+     * @return $(a * b) >> 51$ for non-negative $a$, $b$ where $a * b < 2^{115}$.
+     */
+    private static long hi51(long a, long b) {
+        return (multiplyHigh(a, b) << 13) | ((a * b) >>> 51);
+    }
+
+    /**
+     * @return The most significant 64 bits of the 128-bit product of two 64-bit factors.
+     */
+    static long multiplyHigh(long x, long y) {
+        if (MULTIPLY_HIGH != null) {
+            try {
+                return (long) MULTIPLY_HIGH.invokeExact(x, y);
+            } catch (Throwable th) {
+                throw new AssertionError(th);
+            }
+        }
+        return multiplyHighFallback(x, y);
+    }
+
+    /**
+     * Portable version of {@link #multiplyHigh(long, long)}, as in Hacker's Delight (2nd ed.) section 8-2, used when
+     * the runtime lacks {@code Math.multiplyHigh()}.
+     */
+    static long multiplyHighFallback(long x, long y) {
+        long x1 = x >> 32;
+        long x2 = x & 0xFFFFFFFFL;
+        long y1 = y >> 32;
+        long y2 = y & 0xFFFFFFFFL;
+        long z2 = x2 * y2;
+        long t = x1 * y2 + (z2 >>> 32);
+        long z1 = t & 0xFFFFFFFFL;
+        long z0 = t >> 32;
+        z1 += x2 * y1;
+        return x1 * y1 + z0 + (z1 >> 32);
+    }
+
+    private static MethodHandle findMultiplyHigh() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Math.class, "multiplyHigh",
+                    MethodType.methodType(long.class, long.class, long.class));
+        } catch (ReflectiveOperationException e) {
+            // Java 8
+            return null;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(t);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Ed25519FieldElement51))
+            return false;
+        Ed25519FieldElement51 fe = (Ed25519FieldElement51) obj;
+        return 1==Utils.equal(toByteArray(), fe.toByteArray());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (long i : t) sb.append(i).append(" ");
+        return sb.toString();
+    }
+}
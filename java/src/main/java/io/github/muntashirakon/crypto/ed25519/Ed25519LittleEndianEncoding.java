@@ -77,6 +77,15 @@ public class Ed25519LittleEndianEncoding {
      * Inserting the expression for $x$ into $(1)$ we get the desired expression for $q$.
      */
     public byte[] encode(FieldElement x) {
+        byte[] s = new byte[32];
+        encode(x, s);
+        return s;
+    }
+
+    /**
+     * Same as {@link #encode(FieldElement)}, but writes the 32 byte representation into the given array.
+     */
+    public void encode(FieldElement x, byte[] s) {
         int[] h = ((Ed25519FieldElement)x).t;
         int h0 = h[0];
         int h1 = h[1];
@@ -130,7 +139,6 @@ public class Ed25519LittleEndianEncoding {
         carry9 = h9 >> 25;               h9 -= carry9 << 25;
 
         // Step 2 (straight forward conversion):
-        byte[] s = new byte[32];
         s[0] = (byte) h0;
         s[1] = (byte) (h0 >> 8);
         s[2] = (byte) (h0 >> 16);
@@ -163,7 +171,6 @@ public class Ed25519LittleEndianEncoding {
         s[29] = (byte) (h9 >> 2);
         s[30] = (byte) (h9 >> 10);
         s[31] = (byte) (h9 >> 18);
-        return s;
     }
 
     static int load_3(byte[] in, int offset) {
@@ -188,6 +195,15 @@ public class Ed25519LittleEndianEncoding {
      * @return The field element in its $2^{25.5}$ bit representation.
      */
     public FieldElement decode(byte[] in) {
+        FieldElement h = newElement();
+        decode(in, h);
+        return h;
+    }
+
+    /**
+     * Same as {@link #decode(byte[])}, but writes the limbs of the given field element.
+     */
+    public void decode(byte[] in, FieldElement out) {
         long h0 = load_4(in, 0);
         long h1 = load_3(in, 4) << 6;
         long h2 = load_3(in, 7) << 5;
@@ -222,7 +238,7 @@ public class Ed25519LittleEndianEncoding {
         carry6 = (h6 + (long) (1<<25)) >> 26; h7 += carry6; h6 -= carry6 << 26;
         carry8 = (h8 + (long) (1<<25)) >> 26; h9 += carry8; h8 -= carry8 << 26;
 
-        int[] h = new int[10];
+        int[] h = ((Ed25519FieldElement) out).t;
         h[0] = (int) h0;
         h[1] = (int) h1;
         h[2] = (int) h2;
@@ -233,7 +249,13 @@ public class Ed25519LittleEndianEncoding {
         h[7] = (int) h7;
         h[8] = (int) h8;
         h[9] = (int) h9;
-        return new Ed25519FieldElement(f, h);
+    }
+
+    /**
+     * @return A new field element set to zero.
+     */
+    public FieldElement newElement() {
+        return new Ed25519FieldElement(f, new int[10]);
     }
 
     /**
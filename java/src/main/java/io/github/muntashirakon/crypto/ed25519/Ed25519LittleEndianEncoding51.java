@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.ed25519;
+
+/**
+ * Helper class for encoding/decoding {@link Ed25519FieldElement51} from/to the 32 byte representation. The encoding is
+ * bit-for-bit identical to the one of {@link Ed25519LittleEndianEncoding}.
+ */
+public class Ed25519LittleEndianEncoding51 extends Ed25519LittleEndianEncoding {
+    private static final long MASK_51 = 0x7FFFFFFFFFFFFL;
+
+    /**
+     * Encodes a given field element in its 32 byte representation.
+     * <p>
+     * The value is first carried twice so that it lies in $[0, 2^{255})$. Adding 19 and carrying then tells whether it
+     * is at least $p$: the final carry chain runs on $x + 19 + (2^{255} - 19)$ and drops bit 255, which yields
+     * $x - p$ if $x \ge p$ and $x$ otherwise.
+     */
+    @Override
+    public void encode(FieldElement x, byte[] s) {
+        long[] h = ((Ed25519FieldElement51) x).t;
+        long h0 = h[0];
+        long h1 = h[1];
+        long h2 = h[2];
+        long h3 = h[3];
+        long h4 = h[4];
+
+        // Step 1: reduce modulo p
+        for (int i = 0; i < 2; ++i) {
+            h1 += h0 >>> 51; h0 &= MASK_51;
+            h2 += h1 >>> 51; h1 &= MASK_51;
+            h3 += h2 >>> 51; h2 &= MASK_51;
+            h4 += h3 >>> 51; h3 &= MASK_51;
+            h0 += (h4 >>> 51) * 19; h4 &= MASK_51;
+        }
+        // Now 0 <= h < 2^255, and h >= p iff h + 19 >= 2^255
+        h0 += 19;
+        h1 += h0 >>> 51; h0 &= MASK_51;
+        h2 += h1 >>> 51; h1 &= MASK_51;
+        h3 += h2 >>> 51; h2 &= MASK_51;
+        h4 += h3 >>> 51; h3 &= MASK_51;
+        h0 += (h4 >>> 51) * 19; h4 &= MASK_51;
+        // Subtract the 19 again, offset by 2^255
+        h0 += 0x8000000000000L - 19;
+        h1 += 0x8000000000000L - 1;
+        h2 += 0x8000000000000L - 1;
+        h3 += 0x8000000000000L - 1;
+        h4 += 0x8000000000000L - 1;
+        h1 += h0 >>> 51; h0 &= MASK_51;
+        h2 += h1 >>> 51; h1 &= MASK_51;
+        h3 += h2 >>> 51; h2 &= MASK_51;
+        h4 += h3 >>> 51; h3 &= MASK_51;
+        h4 &= MASK_51;
+
+        // Step 2 (straight forward conversion):
+        store_8(s, 0, h0 | (h1 << 51));
+        store_8(s, 8, (h1 >>> 13) | (h2 << 38));
+        store_8(s, 16, (h2 >>> 26) | (h3 << 25));
+        store_8(s, 24, (h3 >>> 39) | (h4 << 12));
+    }
+
+    /**
+     * Decodes a given field element in its 5 limb $2^{51}$ representation. The most significant bit is ignored.
+     *
+     * @param in The 32 byte representation.
+     * @param out The field element set to its $2^{51}$ bit representation.
+     */
+    @Override
+    public void decode(byte[] in, FieldElement out) {
+        long w0 = load_8(in, 0);
+        long w1 = load_8(in, 8);
+        long w2 = load_8(in, 16);
+        long w3 = load_8(in, 24);
+        long[] h = ((Ed25519FieldElement51) out).t;
+        h[0] = w0 & MASK_51;
+        h[1] = ((w0 >>> 51) | (w1 << 13)) & MASK_51;
+        h[2] = ((w1 >>> 38) | (w2 << 26)) & MASK_51;
+        h[3] = ((w2 >>> 25) | (w3 << 39)) & MASK_51;
+        h[4] = (w3 >>> 12) & MASK_51;
+    }
+
+    /**
+     * @return A new field element set to zero.
+     */
+    @Override
+    public FieldElement newElement() {
+        return new Ed25519FieldElement51(f, new long[5]);
+    }
+
+    static long load_8(byte[] in, int offset) {
+        return (load_4(in, offset)) | (load_4(in, offset + 4) << 32);
+    }
+
+    static void store_8(byte[] out, int offset, long v) {
+        for (int i = 0; i < 8; ++i) {
+            out[offset + i] = (byte) (v >>> (8 * i));
+        }
+    }
+}
@@ -30,6 +30,15 @@ public class Ed25519ScalarOps {
      *   where $q = 2^{252} + 27742317777372353535851937790883648493$.
      */
     public byte[] reduce(byte[] s) {
+        byte[] result = new byte[32];
+        reduce(s, result);
+        return result;
+    }
+
+    /**
+     * Same as {@link #reduce(byte[])}, but writes $s \bmod q$ into the first 32 bytes of result, which may be s.
+     */
+    public void reduce(byte[] s, byte[] result) {
         // s0,..., s22 have 21 bits, s23 has 29 bits
         long s0 = 0x1FFFFF & load_3(s, 0);
         long s1 = 0x1FFFFF & (load_4(s, 2) >> 5);
@@ -280,7 +289,6 @@ public class Ed25519ScalarOps {
         carry10 = s10 >> 21; s11 += carry10; s10 -= carry10 << 21;
 
         // s0, ..., s11 got 21 bits each.
-        byte[] result = new byte[32];
         result[0] = (byte) s0;
         result[1] = (byte) (s0 >> 8);
         result[2] = (byte) ((s0 >> 16) | (s1 << 5));
@@ -313,7 +321,6 @@ public class Ed25519ScalarOps {
         result[29] = (byte) (s11 >> 1);
         result[30] = (byte) (s11 >> 9);
         result[31] = (byte) (s11 >> 17);
-        return result;
     }
 
 
@@ -28,6 +28,23 @@ public abstract class FieldElement implements Serializable {
         return f.getEncoding().encode(this);
     }
 
+    /**
+     * Same as {@link #toByteArray()}, but writes the encoding into the given array of 32 bytes.
+     */
+    public void toByteArray(byte[] s) {
+        f.getEncoding().encode(this, s);
+    }
+
+    /**
+     * $h = s$, decoded as {@link Ed25519Field#fromByteArray(byte[])} does.
+     *
+     * @return this
+     */
+    public FieldElement setFromByteArray(byte[] s) {
+        f.getEncoding().decode(s, this);
+        return this;
+    }
+
     public abstract boolean isNonZero();
 
     public boolean isNegative() {
@@ -58,6 +75,12 @@ public abstract class FieldElement implements Serializable {
 
     public abstract FieldElement squareAndDouble();
 
+    /**
+     * @param n The number of squarings, must be at least 1.
+     * @return this^(2^n), computed by n successive squarings.
+     */
+    public abstract FieldElement squareN(int n);
+
     public abstract FieldElement invert();
 
     public abstract FieldElement pow22523();
@@ -66,6 +89,116 @@ public abstract class FieldElement implements Serializable {
 
     public abstract FieldElement carry();
 
+    // Packed form
+    //
+    // Tables of precomputed points store their coordinates as flat int arrays, PACKED_SIZE ints per field element,
+    // regardless of the limb representation of the field.
+
+    /**
+     * Number of ints occupied by a field element in packed form.
+     */
+    public static final int PACKED_SIZE = 10;
+
+    /**
+     * Writes this field element in packed form.
+     *
+     * @param dst The destination array.
+     * @param offset The index of dst at which the {@link #PACKED_SIZE} ints are written.
+     */
+    public abstract void pack(int[] dst, int offset);
+
+    // Mutable API
+    //
+    // The following methods write their result into this field element instead of allocating a new one, and return
+    // this for chaining. Operands may be the same object as this. They must only be called on field elements obtained
+    // from Ed25519Field#newElement(), never on shared ones, such as the constants of a field or a curve.
+
+    /**
+     * @return this, after setting it to val.
+     */
+    public abstract FieldElement set(FieldElement val);
+
+    /**
+     * @return this, after setting it to a + b.
+     */
+    public abstract FieldElement setSum(FieldElement a, FieldElement b);
+
+    /**
+     * @return this, after setting it to a - b.
+     */
+    public abstract FieldElement setDifference(FieldElement a, FieldElement b);
+
+    /**
+     * @return this, after setting it to -a.
+     */
+    public abstract FieldElement setNegation(FieldElement a);
+
+    /**
+     * @return this, after setting it to a * b.
+     */
+    public abstract FieldElement setProduct(FieldElement a, FieldElement b);
+
+    /**
+     * @return this, after setting it to a^2.
+     */
+    public abstract FieldElement setSquare(FieldElement a);
+
+    /**
+     * @param n The number of squarings, must be at least 1.
+     * @return this, after setting it to a^(2^n).
+     */
+    public abstract FieldElement setSquareN(FieldElement a, int n);
+
+    /**
+     * @return this, after setting it to 2 * a^2.
+     */
+    public abstract FieldElement setSquareAndDouble(FieldElement a);
+
+    /**
+     * @return this, after setting it to a^-1.
+     */
+    public abstract FieldElement setInverse(FieldElement a);
+
+    /**
+     * Same as {@link #setInverse(FieldElement)}, with caller-provided temporaries so that nothing is allocated. The
+     * temporaries must be distinct from each other and from a.
+     *
+     * @return this, after setting it to a^-1.
+     */
+    public abstract FieldElement setInverse(FieldElement a, FieldElement t0, FieldElement t1, FieldElement t2,
+                                            FieldElement t3);
+
+    /**
+     * @return this, after setting it to a^(2^252 - 3).
+     */
+    public abstract FieldElement setPow22523(FieldElement a);
+
+    /**
+     * Same as {@link #setPow22523(FieldElement)}, with caller-provided temporaries so that nothing is allocated. The
+     * temporaries must be distinct from each other and from a.
+     *
+     * @return this, after setting it to a^(2^252 - 3).
+     */
+    public abstract FieldElement setPow22523(FieldElement a, FieldElement t0, FieldElement t1, FieldElement t2);
+
+    /**
+     * Constant-time conditional move.
+     *
+     * @param b must be 0 or 1, otherwise results are undefined.
+     * @return this, after setting it to val if $b == 1$ and leaving it unchanged if $b == 0$.
+     */
+    public abstract FieldElement setCmov(FieldElement val, final int b);
+
+    /**
+     * Constant-time conditional move from a packed field element.
+     *
+     * @param src The array holding the packed field element, as written by {@link #pack(int[], int)}.
+     * @param offset The index of src at which the packed field element starts.
+     * @param b must be 0 or 1, otherwise results are undefined.
+     * @return this, after setting it to the packed field element if $b == 1$ and leaving it unchanged if $b == 0$.
+     */
+    public abstract FieldElement setCmovPacked(int[] src, int offset, final int b);
+
     @Override
     public abstract boolean equals(Object o);
 
@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.ed25519;
+
+/**
+ * Constant-time fixed-base scalar multiplication $a P$ for a point $P$ known in advance and any 256-bit scalar $a$.
+ * <p>
+ * The scalar is recoded into $n = \lceil 256/w \rceil + 1$ signed digits $e_i$ with $|e_i| \le 2^{w-1}$ such that
+ * $a = \sum_i e_i 2^{wi}$. The digit positions are split into $s$ interleaved groups, and the table holds
+ * $k 2^{wsj} P$ for $k = 1, \dots, 2^{w-1}$ and every row $j$. Then
+ * $$
+ * a P = \sum_{r=0}^{s-1} 2^{wr} \sum_j e_{sj+r} 2^{wsj} P
+ * $$
+ * is evaluated from $r = s-1$ down to $r = 0$ with $w$ doublings between two groups, i.e. $\lceil n/s \rceil$ rows of
+ * $2^{w-1}$ entries for $n$ mixed additions and $w(s-1)$ doublings. With $w = 4$ and $s = 2$ this is the algorithm
+ * used by {@link GroupElement#scalarMultiply(byte[])} for the base point. A larger $s$ trades doublings for a smaller
+ * table, and a larger $w$ trades a longer (linear) table scan for fewer additions.
+ * <p>
+ * The table is a {@link PrecompTable}. Looking up an entry scans the whole row with masked copies into scratch field
+ * elements, so neither the memory access pattern nor the allocations depend on the scalar.
+ */
+public class FixedBaseMultiplier {
+    public static final int DEFAULT_WINDOW_BITS = 4;
+    public static final int DEFAULT_INTERLEAVE = 2;
+
+    private final Curve curve;
+    private final int windowBits;
+    private final int interleave;
+    /**
+     * Number of signed digits of a scalar
+     */
+    private final int digits;
+    private final int rows;
+    /**
+     * Number of entries per row
+     */
+    private final int entries;
+    private final PrecompTable table;
+
+    /**
+     * Creates a fixed-base multiplier with the default table size.
+     *
+     * @param P The base point, in P3 representation.
+     */
+    public FixedBaseMultiplier(final GroupElement P) {
+        this(P, DEFAULT_WINDOW_BITS, DEFAULT_INTERLEAVE);
+    }
+
+    /**
+     * Creates a fixed-base multiplier. The table takes {@link #getTableEntries(int, int)} entries.
+     *
+     * @param P The base point, in P3 representation.
+     * @param windowBits The number of bits $w$ per digit, between 1 and 8.
+     * @param interleave The number of interleaved groups $s$, at least 1.
+     */
+    public FixedBaseMultiplier(final GroupElement P, final int windowBits, final int interleave) {
+        this(P.getCurve(), windowBits, interleave);
+        if (P.getRepresentation() != GroupElement.Representation.P3)
+            throw new UnsupportedOperationException();
+
+        // Compute the entries projectively first so that they can be converted to affine with a single inversion
+        final GroupElement[] points = new GroupElement[rows * entries];
+        // 2^(wsj) P
+        GroupElement rowBase = P;
+        for (int j = 0; j < rows; j++) {
+            final GroupElement rowBaseCached = rowBase.toCached();
+            GroupElement Pjk = rowBase;
+            for (int k = 0; k < entries; k++) {
+                points[j * entries + k] = Pjk;
+                if (k + 1 < entries) {
+                    Pjk = Pjk.add(rowBaseCached).toP3();
+                }
+            }
+            if (j + 1 < rows) {
+                for (int d = 0; d < windowBits * interleave; d++) {
+                    rowBase = rowBase.dbl().toP3();
+                }
+            }
+        }
+        final GroupElement[] precomp = GroupElement.toPrecomp(points);
+        for (int i = 0; i < precomp.length; i++) {
+            table.set(i, precomp[i]);
+        }
+    }
+
+    /**
+     * Creates a fixed-base multiplier from a table encoded by {@link #toByteArray()}, e.g. one generated at build time.
+     *
+     * @param curve The curve.
+     * @param windowBits The number of bits $w$ per digit the table was built with.
+     * @param interleave The number of interleaved groups $s$ the table was built with.
+     * @param encoded The encoded table, see {@link PrecomputedTables}.
+     * @param offset The first entry of the table in encoded.
+     */
+    public FixedBaseMultiplier(final Curve curve, final int windowBits, final int interleave, final byte[] encoded,
+                               final int offset) {
+        this(curve, windowBits, interleave);
+        PrecomputedTables.decode(encoded, offset, table);
+    }
+
+    private FixedBaseMultiplier(final Curve curve, final int windowBits, final int interleave) {
+        if (windowBits < 1 || windowBits > 8)
+            throw new IllegalArgumentException("Invalid window size " + windowBits);
+        if (interleave < 1)
+            throw new IllegalArgumentException("Invalid interleave " + interleave);
+        this.curve = curve;
+        this.windowBits = windowBits;
+        this.interleave = interleave;
+        this.digits = (256 + windowBits - 1) / windowBits + 1;
+        this.rows = (digits + interleave - 1) / interleave;
+        this.entries = 1 << (windowBits - 1);
+        this.table = new PrecompTable(curve, rows, entries);
+    }
+
+    /**
+     * @return The number of entries of the table for the given parameters, i.e.
+     * $\lceil (\lceil 256/w \rceil + 1)/s \rceil 2^{w-1}$.
+     */
+    public static int getTableEntries(final int windowBits, final int interleave) {
+        final int digits = (256 + windowBits - 1) / windowBits + 1;
+        return ((digits + interleave - 1) / interleave) << (windowBits - 1);
+    }
+
+    public Curve getCurve() {
+        return curve;
+    }
+
+    public int getWindowBits() {
+        return windowBits;
+    }
+
+    public int getInterleave() {
+        return interleave;
+    }
+
+    /**
+     * @return The table, with $k 2^{wsj} P$ at entry $k-1$ of row $j$.
+     */
+    public PrecompTable getTable() {
+        return table;
+    }
+
+    /**
+     * Encodes the table, see {@link PrecomputedTables}.
+     */
+    public byte[] toByteArray() {
+        return PrecomputedTables.encode(table.toArray());
+    }
+
+    /**
+     * Constant-time $a P$ where $P$ is the base point of this multiplier.
+     *
+     * @param a $a = a[0]+256*a[1]+\dots+256^{31} a[31]$, any 256-bit value.
+     * @return the GroupElement in P3 representation
+     */
+    public GroupElement scalarMultiply(final byte[] a) {
+        final PointWorkspace ws = new PointWorkspace(curve);
+        scalarMultiply(a, ws);
+        return ws.get(GroupElement.Representation.P3);
+    }
+
+    /**
+     * Same as {@link #scalarMultiply(byte[])}, but the result is left in the accumulator of the given workspace in P3
+     * representation, so that nothing is allocated.
+     */
+    public void scalarMultiply(final byte[] a, final PointWorkspace ws) {
+        multiply(a, null, null, ws);
+    }
+
+    /**
+     * Constant-time $a P + b Q$ where $P$ is the base point of this multiplier and $Q$ the one of the other multiplier
+     * (Straus-Shamir). Both scalars are processed in a single pass, sharing the doublings, which saves $w(s-1)$
+     * doublings and the final addition compared to two separate multiplications.
+     *
+     * @param a The scalar for $P$, any 256-bit value.
+     * @param other The multiplier for $Q$. It must be on the same curve and use the same table size as this one.
+     * @param b The scalar for $Q$, any 256-bit value.
+     * @return the GroupElement in P3 representation
+     * @throws IllegalArgumentException If the other multiplier has a different curve or table size.
+     */
+    public GroupElement jointScalarMultiply(final byte[] a, final FixedBaseMultiplier other, final byte[] b) {
+        final PointWorkspace ws = new PointWorkspace(curve);
+        jointScalarMultiply(a, other, b, ws);
+        return ws.get(GroupElement.Representation.P3);
+    }
+
+    /**
+     * Same as {@link #jointScalarMultiply(byte[], FixedBaseMultiplier, byte[])}, but the result is left in the
+     * accumulator of the given workspace in P3 representation, so that nothing is allocated.
+     */
+    public void jointScalarMultiply(final byte[] a, final FixedBaseMultiplier other, final byte[] b,
+                                    final PointWorkspace ws) {
+        if (!curve.equals(other.curve) || windowBits != other.windowBits || interleave != other.interleave)
+            throw new IllegalArgumentException("Incompatible multipliers");
+        multiply(a, other, b, ws);
+    }
+
+    private void multiply(final byte[] a, final FixedBaseMultiplier other, final byte[] b, final PointWorkspace ws) {
+        final byte[] ea = ws.digitsA;
+        final byte[] eb = ws.digitsB;
+        recode(ea, a);
+        if (other != null) {
+            other.recode(eb, b);
+        }
+        // Scratch entry for the table lookups
+        final GroupElement t = ws.precomp;
+
+        ws.setZero();
+        for (int r = interleave - 1; r >= 0; r--) {
+            if (r != interleave - 1) {
+                for (int d = 1; d < windowBits; d++) {
+                    ws.dbl().toP2();
+                }
+                ws.dbl().toP3();
+            }
+            for (int j = 0, i = r; i < digits; j++, i += interleave) {
+                table.select(t, ws.t0, j, ea[i]);
+                ws.madd(t).toP3();
+                if (other != null) {
+                    other.table.select(t, ws.t0, j, eb[i]);
+                    ws.madd(t).toP3();
+                }
+            }
+        }
+    }
+
+    /**
+     * Recodes the scalar into signed digits.
+     *
+     * @param e The destination, at least as long as the number of digits. $e$ is set such that
+     *          $a = \sum_i e_i 2^{wi}$ with $-2^{w-1} \le e_i \lt 2^{w-1}$ except for the last digit, which is 0 or 1.
+     * @param a The scalar, 32 bytes.
+     */
+    private void recode(final byte[] e, final byte[] a) {
+        final int half = 1 << (windowBits - 1);
+        int carry = 0;
+        for (int i = 0; i < digits - 1; i++) {
+            final int v = bits(a, i * windowBits) + carry;
+            carry = (v + half) >> windowBits;
+            e[i] = (byte) (v - (carry << windowBits));
+        }
+        e[digits - 1] = (byte) carry;
+    }
+
+    /**
+     * @return windowBits bits of a starting from bit pos, with zeroes beyond bit 255.
+     */
+    private int bits(final byte[] a, final int pos) {
+        final int i = pos >> 3;
+        if (i >= 32)
+            return 0;
+        int v = a[i] & 0xFF;
+        if (i + 1 < 32)
+            v |= (a[i + 1] & 0xFF) << 8;
+        return (v >>> (pos & 7)) & ((1 << windowBits) - 1);
+    }
+}
@@ -199,7 +199,7 @@ public class GroupElement implements Serializable {
      * <p>
      * Variable is package private only so that tests run.
      */
-    final GroupElement[][] precmp;
+    final PrecompTable precmp;
 
     /**
      * Precomputed table for {@link #doubleScalarMultiplyVariableTime(GroupElement, byte[], byte[])},
@@ -269,6 +269,28 @@ public class GroupElement implements Serializable {
         this.dblPrecmp = precomputeDouble ? precomputeDouble() : null;
     }
 
+    /**
+     * Creates a copy of a group element in P3 representation with the given tables, e.g. ones loaded from a resource
+     * instead of being precomputed.
+     *
+     * @param p The group element.
+     * @param precmp Table for {@link #scalarMultiply(byte[])}, as built by {@link #precomputeSingle()}.
+     * @param dblPrecmp Table for {@link #doubleScalarMultiplyVariableTime(GroupElement, byte[], byte[])}, as built by
+     *                  {@link #precomputeDouble()}.
+     */
+    GroupElement(final GroupElement p, final PrecompTable precmp, final GroupElement[] dblPrecmp) {
+        if (p.repr != Representation.P3)
+            throw new UnsupportedOperationException();
+        this.curve = p.curve;
+        this.repr = Representation.P3;
+        this.X = p.X;
+        this.Y = p.Y;
+        this.Z = p.Z;
+        this.T = p.T;
+        this.precmp = precmp;
+        this.dblPrecmp = dblPrecmp;
+    }
+
     /**
      * Creates a group element for a curve from a given encoded point. No pre-computation.
      * <p>
@@ -436,6 +458,61 @@ public class GroupElement implements Serializable {
         }
     }
 
+    /**
+     * Converts the given group elements to encoded points on the curve. This is equivalent to calling
+     * {@link #toByteArray()} on each of them, but it uses a single field inversion for the whole batch.
+     *
+     * @param points The group elements to encode. They need not be on the same representation.
+     * @return The encoded points as byte arrays, in the same order as the given group elements.
+     */
+    public static byte[][] toByteArray(final GroupElement[] points) {
+        byte[][] encoded = new byte[points.length][];
+        if (points.length == 0) {
+            return encoded;
+        }
+        final GroupElement[] p2 = new GroupElement[points.length];
+        final FieldElement[] Z = new FieldElement[points.length];
+        for (int i = 0; i < points.length; ++i) {
+            p2[i] = (points[i].repr == Representation.P2 || points[i].repr == Representation.P3)
+                    ? points[i] : points[i].toP2();
+            Z[i] = p2[i].Z;
+        }
+        final FieldElement[] recip = points[0].curve.getField().invertBatch(Z);
+        for (int i = 0; i < points.length; ++i) {
+            FieldElement x = p2[i].X.multiply(recip[i]);
+            FieldElement y = p2[i].Y.multiply(recip[i]);
+            byte[] s = y.toByteArray();
+            s[s.length-1] |= (x.isNegative() ? (byte) 0x80 : 0);
+            encoded[i] = s;
+        }
+        return encoded;
+    }
+
+    /**
+     * Converts the given group elements to the PRECOMP representation, using a single field inversion for the whole
+     * batch.
+     *
+     * @param points The group elements to convert, in P2 or P3 representation.
+     * @return The group elements in PRECOMP representation, in the same order as the given group elements.
+     */
+    public static GroupElement[] toPrecomp(final GroupElement[] points) {
+        final GroupElement[] precomp = new GroupElement[points.length];
+        if (points.length == 0) {
+            return precomp;
+        }
+        final FieldElement[] Z = new FieldElement[points.length];
+        for (int i = 0; i < points.length; ++i) {
+            if (points[i].repr != Representation.P2 && points[i].repr != Representation.P3)
+                throw new IllegalArgumentException();
+            Z[i] = points[i].Z;
+        }
+        final FieldElement[] recip = points[0].curve.getField().invertBatch(Z);
+        for (int i = 0; i < points.length; ++i) {
+            precomp[i] = toPrecomp(points[i], recip[i]);
+        }
+        return precomp;
+    }
+
     /**
      * Converts the group element to the P2 representation.
      *
@@ -488,6 +565,9 @@ public class GroupElement implements Serializable {
      * @return A new group element in the given representation.
      */
     private GroupElement toRep(final Representation repr) {
+        // Group elements are immutable, so there is no need to copy
+        if (this.repr == repr)
+            return this;
         switch (this.repr) {
             case P2:
                 switch (repr) {
@@ -542,18 +622,16 @@ public class GroupElement implements Serializable {
     /**
      * Precomputes table for {@link #scalarMultiply(byte[])}.
      */
-    private GroupElement[][] precomputeSingle() {
+    private PrecompTable precomputeSingle() {
         // Precomputation for single scalar multiplication.
-        GroupElement[][] precmp = new GroupElement[32][8];
+        // Compute the points projectively first so that they can be converted to affine with a single inversion
+        final GroupElement[] points = new GroupElement[32 * 8];
         // TODO-CR BR: check that this == base point when the method is called.
         GroupElement Bi = this;
         for (int i = 0; i < 32; i++) {
             GroupElement Bij = Bi;
             for (int j = 0; j < 8; j++) {
-                final FieldElement recip = Bij.Z.invert();
-                final FieldElement x = Bij.X.multiply(recip);
-                final FieldElement y = Bij.Y.multiply(recip);
-                precmp[i][j] = precomp(this.curve, y.add(x), y.subtract(x), x.multiply(y).multiply(this.curve.get2D()));
+                points[i * 8 + j] = Bij;
                 Bij = Bij.add(Bi.toCached()).toP3();
             }
             // Only every second summand is precomputed (16^2 = 256)
@@ -561,7 +639,7 @@ public class GroupElement implements Serializable {
                 Bi = Bi.add(Bi.toCached()).toP3();
             }
         }
-        return precmp;
+        return new PrecompTable(this.curve, 32, 8, toPrecomp(points));
     }
 
     /**
@@ -570,17 +648,26 @@ public class GroupElement implements Serializable {
     private GroupElement[] precomputeDouble() {
         // Precomputation for double scalar multiplication.
         // P,3P,5P,7P,9P,11P,13P,15P
-        GroupElement[] dblPrecmp = new GroupElement[8];
+        final GroupElement[] points = new GroupElement[8];
         GroupElement Bi = this;
         for (int i = 0; i < 8; i++) {
-            final FieldElement recip = Bi.Z.invert();
-            final FieldElement x = Bi.X.multiply(recip);
-            final FieldElement y = Bi.Y.multiply(recip);
-            dblPrecmp[i] = precomp(this.curve, y.add(x), y.subtract(x), x.multiply(y).multiply(this.curve.get2D()));
+            points[i] = Bi;
             // Bi = edwards(B,edwards(B,Bi))
             Bi = this.add(this.add(Bi.toCached()).toP3().toCached()).toP3();
         }
-        return dblPrecmp;
+        return toPrecomp(points);
+    }
+
+    /**
+     * Converts a P2 or P3 group element to the PRECOMP representation.
+     *
+     * @param p The group element.
+     * @param recip The inverse of the Z coordinate of p.
+     */
+    private static GroupElement toPrecomp(final GroupElement p, final FieldElement recip) {
+        final FieldElement x = p.X.multiply(recip);
+        final FieldElement y = p.Y.multiply(recip);
+        return precomp(p.curve, y.add(x), y.subtract(x), x.multiply(y).multiply(p.curve.get2D()));
     }
 
     /**
@@ -620,15 +707,19 @@ public class GroupElement implements Serializable {
         switch (this.repr) {
         case P2:
         case P3: // Ignore T for P3 representation
-            FieldElement XX, YY, B, A, AA, Yn, Zn;
-            XX = this.X.square();
-            YY = this.Y.square();
-            B = this.Z.squareAndDouble();
-            A = this.X.add(this.Y);
-            AA = A.square();
-            Yn = YY.add(XX);
-            Zn = YY.subtract(XX);
-            return p1p1(this.curve, AA.subtract(Yn), Yn, Zn, B.subtract(Zn));
+            final Ed25519Field f = this.curve.getField();
+            final FieldElement rX = f.newElement(), rY = f.newElement(), rZ = f.newElement(), rT = f.newElement();
+            final FieldElement AA = f.newElement();
+            rX.setSquare(this.X);                // XX
+            rZ.setSquare(this.Y);                // YY
+            rT.setSquareAndDouble(this.Z);       // B
+            rY.setSum(this.X, this.Y);           // A
+            AA.setSquare(rY);
+            rY.setSum(rZ, rX);                   // Yn = YY + XX
+            rZ.setDifference(rZ, rX);            // Zn = YY - XX
+            rX.setDifference(AA, rY);
+            rT.setDifference(rT, rZ);
+            return p1p1(this.curve, rX, rY, rZ, rT);
         default:
             throw new UnsupportedOperationException();
         }
@@ -685,14 +776,20 @@ public class GroupElement implements Serializable {
         if (q.repr != Representation.PRECOMP)
             throw new IllegalArgumentException();
 
-        FieldElement YpX, YmX, A, B, C, D;
-        YpX = this.Y.add(this.X);
-        YmX = this.Y.subtract(this.X);
-        A = YpX.multiply(q.X); // q->y+x
-        B = YmX.multiply(q.Y); // q->y-x
-        C = q.Z.multiply(this.T); // q->2dxy
-        D = this.Z.add(this.Z);
-        return p1p1(this.curve, A.subtract(B), A.add(B), D.add(C), D.subtract(C));
+        final Ed25519Field f = this.curve.getField();
+        final FieldElement rX = f.newElement(), rY = f.newElement(), rZ = f.newElement(), rT = f.newElement();
+        final FieldElement D = f.newElement();
+        rX.setSum(this.Y, this.X);           // YpX
+        rY.setDifference(this.Y, this.X);    // YmX
+        rZ.setProduct(rX, q.X);              // A = YpX * q->y+x
+        rY.setProduct(rY, q.Y);              // B = YmX * q->y-x
+        rT.setProduct(q.Z, this.T);          // C = q->2dxy * T
+        D.setSum(this.Z, this.Z);
+        rX.setDifference(rZ, rY);            // A - B
+        rY.setSum(rZ, rY);                   // A + B
+        rZ.setSum(D, rT);                    // D + C
+        rT.setDifference(D, rT);             // D - C
+        return p1p1(this.curve, rX, rY, rZ, rT);
     }
 
     /**
@@ -714,14 +811,20 @@ public class GroupElement implements Serializable {
         if (q.repr != Representation.PRECOMP)
             throw new IllegalArgumentException();
 
-        FieldElement YpX, YmX, A, B, C, D;
-        YpX = this.Y.add(this.X);
-        YmX = this.Y.subtract(this.X);
-        A = YpX.multiply(q.Y); // q->y-x
-        B = YmX.multiply(q.X); // q->y+x
-        C = q.Z.multiply(this.T); // q->2dxy
-        D = this.Z.add(this.Z);
-        return p1p1(this.curve, A.subtract(B), A.add(B), D.subtract(C), D.add(C));
+        final Ed25519Field f = this.curve.getField();
+        final FieldElement rX = f.newElement(), rY = f.newElement(), rZ = f.newElement(), rT = f.newElement();
+        final FieldElement D = f.newElement();
+        rX.setSum(this.Y, this.X);           // YpX
+        rY.setDifference(this.Y, this.X);    // YmX
+        rZ.setProduct(rX, q.Y);              // A = YpX * q->y-x
+        rY.setProduct(rY, q.X);              // B = YmX * q->y+x
+        rT.setProduct(q.Z, this.T);          // C = q->2dxy * T
+        D.setSum(this.Z, this.Z);
+        rX.setDifference(rZ, rY);            // A - B
+        rY.setSum(rZ, rY);                   // A + B
+        rZ.setDifference(D, rT);             // D - C
+        rT.setSum(D, rT);                    // D + C
+        return p1p1(this.curve, rX, rY, rZ, rT);
     }
 
     /**
@@ -756,15 +859,21 @@ public class GroupElement implements Serializable {
         if (q.repr != Representation.CACHED)
             throw new IllegalArgumentException();
 
-        FieldElement YpX, YmX, A, B, C, ZZ, D;
-        YpX = this.Y.add(this.X);
-        YmX = this.Y.subtract(this.X);
-        A = YpX.multiply(q.X); // q->Y+X
-        B = YmX.multiply(q.Y); // q->Y-X
-        C = q.T.multiply(this.T); // q->2dT
-        ZZ = this.Z.multiply(q.Z);
-        D = ZZ.add(ZZ);
-        return p1p1(this.curve, A.subtract(B), A.add(B), D.add(C), D.subtract(C));
+        final Ed25519Field f = this.curve.getField();
+        final FieldElement rX = f.newElement(), rY = f.newElement(), rZ = f.newElement(), rT = f.newElement();
+        final FieldElement D = f.newElement();
+        rX.setSum(this.Y, this.X);           // YpX
+        rY.setDifference(this.Y, this.X);    // YmX
+        rZ.setProduct(rX, q.X);              // A = YpX * q->Y+X
+        rY.setProduct(rY, q.Y);              // B = YmX * q->Y-X
+        rT.setProduct(q.T, this.T);          // C = q->2dT * T
+        D.setProduct(this.Z, q.Z);
+        D.setSum(D, D);                      // D = 2 * Z * q->Z
+        rX.setDifference(rZ, rY);            // A - B
+        rY.setSum(rZ, rY);                   // A + B
+        rZ.setSum(D, rT);                    // D + C
+        rT.setDifference(D, rT);             // D - C
+        return p1p1(this.curve, rX, rY, rZ, rT);
     }
 
     /**
@@ -785,16 +894,21 @@ public class GroupElement implements Serializable {
         if (q.repr != Representation.CACHED)
             throw new IllegalArgumentException();
 
-        FieldElement YpX, YmX, trZ, trY, trT, trX, D;
-        YpX = Y.add(X);
-        YmX = Y.subtract(X);
-        trZ = YpX.multiply(q.Y); // q->Y-X
-        trY = YmX.multiply(q.X); // q->Y+X
-        trT = q.T.multiply(T); // q->2dT
-        trX = Z.multiply(q.Z);
-        D = trX.add(trX);
-        System.out.println("===> " + D.toString());
-        return p1p1(curve, trZ.subtract(trY), trZ.add(trY), D.subtract(trT), D.add(trT));
+        final Ed25519Field f = this.curve.getField();
+        final FieldElement rX = f.newElement(), rY = f.newElement(), rZ = f.newElement(), rT = f.newElement();
+        final FieldElement D = f.newElement();
+        rX.setSum(this.Y, this.X);           // YpX
+        rY.setDifference(this.Y, this.X);    // YmX
+        rZ.setProduct(rX, q.Y);              // A = YpX * q->Y-X
+        rY.setProduct(rY, q.X);              // B = YmX * q->Y+X
+        rT.setProduct(q.T, this.T);          // C = q->2dT * T
+        D.setProduct(this.Z, q.Z);
+        D.setSum(D, D);                      // D = 2 * Z * q->Z
+        rX.setDifference(rZ, rY);            // A - B
+        rY.setSum(rZ, rY);                   // A + B
+        rZ.setDifference(D, rT);             // D - C
+        rT.setSum(D, rT);                    // D + C
+        return p1p1(this.curve, rX, rY, rZ, rT);
     }
 
     /**
@@ -873,6 +987,14 @@ public class GroupElement implements Serializable {
      */
     static byte[] toRadix16(final byte[] a) {
         final byte[] e = new byte[64];
+        toRadix16(e, a);
+        return e;
+    }
+
+    /**
+     * Same as {@link #toRadix16(byte[])}, but the result is written into the first 64 bytes of e.
+     */
+    static void toRadix16(final byte[] e, final byte[] a) {
         int i;
         // Radix 16 notation
         for (i = 0; i < 32; i++) {
@@ -890,7 +1012,6 @@ public class GroupElement implements Serializable {
         }
         e[63] += carry;
         /* each e[i] is between -8 and 7 */
-        return e;
     }
 
     /**
@@ -899,13 +1020,16 @@ public class GroupElement implements Serializable {
      * Replaces this with $u$ if $b == 1$.<br>
      * Replaces this with this if $b == 0$.
      * <p>
-     * Method is package private only so that tests run.
+     * Both group elements must be either in PRECOMP or in CACHED representation.
      *
      * @param u The group element to return if $b == 1$.
      * @param b in $\{0, 1\}$
      * @return $u$ if $b == 1$; this if $b == 0$. Results undefined if $b$ is not in $\{0, 1\}$.
      */
     public GroupElement cmov(final GroupElement u, final int b) {
+        if (this.repr == Representation.CACHED) {
+            return cached(curve, X.cmov(u.X, b), Y.cmov(u.Y, b), Z.cmov(u.Z, b), T.cmov(u.T, b));
+        }
         return precomp(curve, X.cmov(u.X, b), Y.cmov(u.Y, b), Z.cmov(u.Z, b));
     }
 
@@ -917,32 +1041,16 @@ public class GroupElement implements Serializable {
      * <p>
      * Must have previously precomputed.
      * <p>
-     * Method is package private only so that tests run.
+     * The entry is written into the given scratch point with masked limb copies, so nothing is allocated.
      *
+     * @param t The destination in PRECOMP representation, whose coordinates must be mutable.
+     * @param tmp Scratch field element.
      * @param pos $= i/2$ for $i$ in $\{0, 2, 4,..., 62\}$
      * @param b $= r_i$
-     * @return the GroupElement
      */
-    GroupElement select(final int pos, final int b) {
-        // Is r_i negative?
-        final int bnegative = Utils.negative(b);
-        // |r_i|
-        final int babs = b - (((-bnegative) & b) << 1);
-
-        // 16^i |r_i| B
-        final GroupElement t = this.curve.getZero(Representation.PRECOMP)
-                .cmov(this.precmp[pos][0], Utils.equal(babs, 1))
-                .cmov(this.precmp[pos][1], Utils.equal(babs, 2))
-                .cmov(this.precmp[pos][2], Utils.equal(babs, 3))
-                .cmov(this.precmp[pos][3], Utils.equal(babs, 4))
-                .cmov(this.precmp[pos][4], Utils.equal(babs, 5))
-                .cmov(this.precmp[pos][5], Utils.equal(babs, 6))
-                .cmov(this.precmp[pos][6], Utils.equal(babs, 7))
-                .cmov(this.precmp[pos][7], Utils.equal(babs, 8));
-        // -16^i |r_i| B
-        final GroupElement tminus = precomp(curve, t.Y, t.X, t.Z.negate());
+    void select(final GroupElement t, final FieldElement tmp, final int pos, final int b) {
         // 16^i r_i B
-        return t.cmov(tminus, bnegative);
+        this.precmp.select(t, tmp, pos, b);
     }
 
     /**
@@ -957,25 +1065,60 @@ public class GroupElement implements Serializable {
      * @return the GroupElement
      */
     public GroupElement scalarMultiply(final byte[] a) {
-        GroupElement t;
+        final PointWorkspace ws = new PointWorkspace(this.curve);
+        scalarMultiply(a, ws);
+        return ws.get(Representation.P3);
+    }
+
+    /**
+     * Same as {@link #scalarMultiply(byte[])}, but the result is left in the accumulator of the given workspace in P3
+     * representation, so that nothing is allocated.
+     *
+     * @param a $= a[0]+256*a[1]+\dots+256^{31} a[31]$
+     * @param ws The workspace.
+     */
+    public void scalarMultiply(final byte[] a, final PointWorkspace ws) {
         int i;
 
-        final byte[] e = toRadix16(a);
+        final byte[] e = ws.digitsA;
+        toRadix16(e, a);
 
-        GroupElement h = this.curve.getZero(Representation.P3);
+        ws.setZero();
         for (i = 1; i < 64; i += 2) {
-            t = select(i/2, e[i]);
-            h = h.madd(t).toP3();
+            select(ws.precomp, ws.t0, i/2, e[i]);
+            ws.madd(ws.precomp).toP3();
         }
 
-        h = h.dbl().toP2().dbl().toP2().dbl().toP2().dbl().toP3();
+        ws.dbl().toP2().dbl().toP2().dbl().toP2().dbl().toP3();
 
         for (i = 0; i < 64; i += 2) {
-            t = select(i/2, e[i]);
-            h = h.madd(t).toP3();
+            select(ws.precomp, ws.t0, i/2, e[i]);
+            ws.madd(ws.precomp).toP3();
         }
+    }
 
-        return h;
+    /**
+     * $h = a * P$ where $a = a[0]+256*a[1]+\dots+256^{31} a[31]$ and $P$ is this point.
+     * Constant time.
+     * <p>
+     * Unlike {@link #scalarMultiply(byte[])}, this point does not need to have been precomputed. Instead, a small
+     * table of $P, 2P, \dots, 8P$ is built for each call in CACHED representation and the scalar is processed in
+     * signed radix 16 windows, i.e. four doublings and one addition per window. See
+     * {@link PointWorkspace#scalarMultiplyVariableBase(byte[])}.
+     * <p>
+     * Preconditions:
+     *   $a[31] \le 127$
+     *
+     * @param a $= a[0]+256*a[1]+\dots+256^{31} a[31]$
+     * @return the GroupElement in P3 representation
+     */
+    public GroupElement scalarMultiplyVariableBase(final byte[] a) {
+        if (this.repr != Representation.P3)
+            throw new UnsupportedOperationException();
+
+        final PointWorkspace ws = new PointWorkspace(this.curve);
+        ws.set(this).scalarMultiplyVariableBase(a);
+        return ws.get(Representation.P3);
     }
 
     /**
@@ -992,7 +1135,14 @@ public class GroupElement implements Serializable {
      */
     static byte[] slide(final byte[] a) {
         byte[] r = new byte[256];
+        slide(r, a);
+        return r;
+    }
 
+    /**
+     * Same as {@link #slide(byte[])}, but the result is written into the first 256 bytes of r.
+     */
+    static void slide(final byte[] r, final byte[] a) {
         // Put each bit of 'a' into a separate byte, 0 or 1
         for (int i = 0; i < 256; ++i) {
             r[i] = (byte) (1 & (a[i >> 3] >> (i & 7)));
@@ -1023,7 +1173,6 @@ public class GroupElement implements Serializable {
             }
         }
 
-        return r;
     }
 
     /**
@@ -1038,11 +1187,29 @@ public class GroupElement implements Serializable {
      * @return the GroupElement
      */
     public GroupElement doubleScalarMultiplyVariableTime(final GroupElement A, final byte[] a, final byte[] b) {
+        final PointWorkspace ws = new PointWorkspace(this.curve);
+        doubleScalarMultiplyVariableTime(A, a, b, ws);
+        return ws.get(Representation.P2);
+    }
+
+    /**
+     * Same as {@link #doubleScalarMultiplyVariableTime(GroupElement, byte[], byte[])}, but the result is left in the
+     * accumulator of the given workspace in P2 representation, so that nothing is allocated.
+     *
+     * @param A in P3 representation.
+     * @param a $= a[0]+256*a[1]+\dots+256^{31} a[31]$
+     * @param b $= b[0]+256*b[1]+\dots+256^{31} b[31]$
+     * @param ws The workspace.
+     */
+    public void doubleScalarMultiplyVariableTime(final GroupElement A, final byte[] a, final byte[] b,
+                                                 final PointWorkspace ws) {
         // TODO-CR BR: A check that this is the base point is needed.
-        final byte[] aslide = slide(a);
-        final byte[] bslide = slide(b);
+        final byte[] aslide = ws.digitsA;
+        final byte[] bslide = ws.digitsB;
+        slide(aslide, a);
+        slide(bslide, b);
 
-        GroupElement r = this.curve.getZero(Representation.P2);
+        ws.setZero();
 
         int i;
         for (i = 255; i >= 0; --i) {
@@ -1050,24 +1217,22 @@ public class GroupElement implements Serializable {
         }
 
         for (; i >= 0; --i) {
-            GroupElement t = r.dbl();
+            ws.dbl();
 
                 if (aslide[i] > 0) {
-                    t = t.toP3().madd(A.dblPrecmp[aslide[i]/2]);
+                    ws.toP3().madd(A.dblPrecmp[aslide[i]/2]);
                 } else if(aslide[i] < 0) {
-                    t = t.toP3().msub(A.dblPrecmp[(-aslide[i])/2]);
+                    ws.toP3().msub(A.dblPrecmp[(-aslide[i])/2]);
                 }
 
                 if (bslide[i] > 0) {
-                    t = t.toP3().madd(this.dblPrecmp[bslide[i]/2]);
+                    ws.toP3().madd(this.dblPrecmp[bslide[i]/2]);
                 } else if(bslide[i] < 0) {
-                    t = t.toP3().msub(this.dblPrecmp[(-bslide[i])/2]);
+                    ws.toP3().msub(this.dblPrecmp[(-bslide[i])/2]);
                 }
 
-            r = t.toP2();
+            ws.toP2();
         }
-
-        return r;
     }
 
     /**
@@ -0,0 +1,462 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.ed25519;
+
+import java.util.Arrays;
+
+/**
+ * Mutable workspace for point arithmetic. Unlike {@link GroupElement}, whose operations return new points, it holds
+ * fixed slots for the representations used by the ref10 formulas, and all operations and conversions run in place:
+ * <ul>
+ * <li>the accumulator $h$, in P3 representation $(X:Y:Z:T)$, or P2 after {@link #toP2()},
+ * <li>the result $r$ of the last doubling or addition, in P1P1 representation,
+ * <li>a CACHED operand $(Y+X, Y-X, Z, 2dT)$, set by {@link #toCached()} so that $2dT$ is only computed once for a
+ * point that is added repeatedly,
+ * <li>a PRECOMP operand, the destination of the table lookups,
+ * <li>scratch field elements, digits and a packed table for {@link #scalarMultiplyVariableBase(byte[])}.
+ * </ul>
+ * A typical step is {@link #dbl()} or {@link #madd(GroupElement)} followed by {@link #toP2()} or {@link #toP3()}.
+ * Once created, a workspace does not allocate except when converting to a {@link GroupElement} or to a new byte
+ * array, so it should be reused. It is not thread-safe.
+ */
+public final class PointWorkspace {
+    private static final int CACHED_SIZE = 4 * FieldElement.PACKED_SIZE;
+    private static final byte[] ZERO = new byte[32];
+
+    private final Curve curve;
+    private final Ed25519Field f;
+
+    // Accumulator h
+    final FieldElement X;
+    final FieldElement Y;
+    final FieldElement Z;
+    final FieldElement T;
+    // P1P1 result r
+    private final FieldElement rX;
+    private final FieldElement rY;
+    private final FieldElement rZ;
+    private final FieldElement rT;
+    // CACHED operand
+    private final FieldElement cYpX;
+    private final FieldElement cYmX;
+    private final FieldElement cZ;
+    private final FieldElement cT2d;
+    /**
+     * PRECOMP operand
+     */
+    final GroupElement precomp;
+    final FieldElement t0;
+    private final FieldElement t1;
+    private final FieldElement t2;
+    private final FieldElement t3;
+    private final FieldElement t4;
+    private final FieldElement t5;
+    /**
+     * $P, 2P, \dots, 8P$ in CACHED representation, packed
+     */
+    private final int[] cachedTable = new int[8 * CACHED_SIZE];
+    /**
+     * Scratch digits of the scalars, large enough for {@link GroupElement#slide(byte[])} and for
+     * {@link FixedBaseMultiplier} with 1-bit windows
+     */
+    final byte[] digitsA = new byte[257];
+    final byte[] digitsB = new byte[257];
+    /**
+     * Scratch encoding of a field element
+     */
+    private final byte[] encoded = new byte[32];
+
+    public PointWorkspace(final Curve curve) {
+        this.curve = curve;
+        this.f = curve.getField();
+        X = f.newElement();
+        Y = f.newElement();
+        Z = f.newElement();
+        T = f.newElement();
+        rX = f.newElement();
+        rY = f.newElement();
+        rZ = f.newElement();
+        rT = f.newElement();
+        cYpX = f.newElement();
+        cYmX = f.newElement();
+        cZ = f.newElement();
+        cT2d = f.newElement();
+        precomp = GroupElement.precomp(curve, f.newElement(), f.newElement(), f.newElement());
+        t0 = f.newElement();
+        t1 = f.newElement();
+        t2 = f.newElement();
+        t3 = f.newElement();
+        t4 = f.newElement();
+        t5 = f.newElement();
+        setZero();
+    }
+
+    public Curve getCurve() {
+        return curve;
+    }
+
+    /**
+     * $h = 0$, in P3 representation.
+     */
+    public PointWorkspace setZero() {
+        X.set(f.ZERO);
+        Y.set(f.ONE);
+        Z.set(f.ONE);
+        T.set(f.ZERO);
+        return this;
+    }
+
+    /**
+     * $h = p$.
+     *
+     * @param p The point in P3 representation, or in P2 representation if only used for doublings or conversions.
+     */
+    public PointWorkspace set(final GroupElement p) {
+        if (p.repr != GroupElement.Representation.P3 && p.repr != GroupElement.Representation.P2)
+            throw new IllegalArgumentException();
+        X.set(p.X);
+        Y.set(p.Y);
+        Z.set(p.Z);
+        if (p.T != null) {
+            T.set(p.T);
+        }
+        return this;
+    }
+
+    /**
+     * $h$ is set to the accumulator of another workspace, e.g. one used by another thread.
+     */
+    public PointWorkspace set(final PointWorkspace other) {
+        X.set(other.X);
+        Y.set(other.Y);
+        Z.set(other.Z);
+        T.set(other.T);
+        return this;
+    }
+
+    /**
+     * $h$ is set to the point encoded by s, as {@link Curve#fromBytesNegateVarTime(byte[])} does. Not constant time.
+     *
+     * @param s The encoded point.
+     * @return false if s does not encode a point, in which case $h$ is undefined.
+     */
+    public boolean setFromBytesNegateVarTime(final byte[] s) {
+        Y.setFromByteArray(s);
+        Z.set(f.ONE);
+        t0.setSquare(Y);
+        t1.setProduct(t0, curve.getD());    // dy^2
+        t0.setDifference(t0, Z);            // u = y^2-1
+        t1.setSum(t1, Z);                   // v = dy^2+1
+        t2.setSquare(t1);
+        t2.setProduct(t2, t1);              // v3 = v^3
+        X.setSquare(t2);
+        X.setProduct(X, t1);
+        X.setProduct(X, t0);                // x = uv^7
+        X.setPow22523(X, t3, t4, t5);       // x = (uv^7)^((q-5)/8)
+        X.setProduct(X, t2);
+        X.setProduct(X, t0);                // x = uv^3(uv^7)^((q-5)/8)
+        t3.setSquare(X);
+        t3.setProduct(t3, t1);              // vx^2
+        t2.setDifference(t3, t0);           // vx^2 - u
+        if (isNonZero(t2)) {
+            t2.setSum(t3, t0);              // vx^2 + u
+            if (isNonZero(t2)) {
+                return false;
+            }
+            X.setProduct(X, curve.getI());  // x = iuv^3(uv^7)^((q-5)/8)
+        }
+        if (isNegative(X) != ((s[31] & 0xFF) >>> 7)) {
+            X.setNegation(X);
+        }
+        T.setProduct(X, Y);
+        return true;
+    }
+
+    /**
+     * $h = -h$, in P3 representation.
+     */
+    public PointWorkspace negate() {
+        X.setNegation(X);
+        T.setNegation(T);
+        return this;
+    }
+
+    /**
+     * $r = 2h$ where $h$ is in P2 or P3 representation.
+     */
+    public PointWorkspace dbl() {
+        rX.setSquare(X);                    // XX
+        rZ.setSquare(Y);                    // YY
+        rT.setSquareAndDouble(Z);           // B
+        rY.setSum(X, Y);                    // A
+        t0.setSquare(rY);
+        rY.setSum(rZ, rX);                  // Yn = YY + XX
+        rZ.setDifference(rZ, rX);           // Zn = YY - XX
+        rX.setDifference(t0, rY);
+        rT.setDifference(rT, rZ);
+        return this;
+    }
+
+    /**
+     * $r = h + q$ where $h$ is in P3 representation.
+     *
+     * @param q The point in PRECOMP representation.
+     */
+    public PointWorkspace madd(final GroupElement q) {
+        rX.setSum(Y, X);                    // YpX
+        rY.setDifference(Y, X);             // YmX
+        rZ.setProduct(rX, q.X);             // A = YpX * q->y+x
+        rY.setProduct(rY, q.Y);             // B = YmX * q->y-x
+        rT.setProduct(q.Z, T);              // C = q->2dxy * T
+        t0.setSum(Z, Z);                    // D
+        rX.setDifference(rZ, rY);           // A - B
+        rY.setSum(rZ, rY);                  // A + B
+        rZ.setSum(t0, rT);                  // D + C
+        rT.setDifference(t0, rT);           // D - C
+        return this;
+    }
+
+    /**
+     * $r = h - q$ where $h$ is in P3 representation.
+     *
+     * @param q The point in PRECOMP representation.
+     */
+    public PointWorkspace msub(final GroupElement q) {
+        rX.setSum(Y, X);                    // YpX
+        rY.setDifference(Y, X);             // YmX
+        rZ.setProduct(rX, q.Y);             // A = YpX * q->y-x
+        rY.setProduct(rY, q.X);             // B = YmX * q->y+x
+        rT.setProduct(q.Z, T);              // C = q->2dxy * T
+        t0.setSum(Z, Z);                    // D
+        rX.setDifference(rZ, rY);           // A - B
+        rY.setSum(rZ, rY);                  // A + B
+        rZ.setDifference(t0, rT);           // D - C
+        rT.setSum(t0, rT);                  // D + C
+        return this;
+    }
+
+    /**
+     * $r = h + c$ where $h$ is in P3 representation and $c$ is the CACHED operand.
+     */
+    public PointWorkspace addCached() {
+        rX.setSum(Y, X);                    // YpX
+        rY.setDifference(Y, X);             // YmX
+        rZ.setProduct(rX, cYpX);            // A = YpX * c->Y+X
+        rY.setProduct(rY, cYmX);            // B = YmX * c->Y-X
+        rT.setProduct(cT2d, T);             // C = c->2dT * T
+        t0.setProduct(Z, cZ);
+        t0.setSum(t0, t0);                  // D = 2 * Z * c->Z
+        rX.setDifference(rZ, rY);           // A - B
+        rY.setSum(rZ, rY);                  // A + B
+        rZ.setSum(t0, rT);                  // D + C
+        rT.setDifference(t0, rT);           // D - C
+        return this;
+    }
+
+    /**
+     * $r = h - c$ where $h$ is in P3 representation and $c$ is the CACHED operand.
+     */
+    public PointWorkspace subCached() {
+        rX.setSum(Y, X);                    // YpX
+        rY.setDifference(Y, X);             // YmX
+        rZ.setProduct(rX, cYmX);            // A = YpX * c->Y-X
+        rY.setProduct(rY, cYpX);            // B = YmX * c->Y+X
+        rT.setProduct(cT2d, T);             // C = c->2dT * T
+        t0.setProduct(Z, cZ);
+        t0.setSum(t0, t0);                  // D = 2 * Z * c->Z
+        rX.setDifference(rZ, rY);           // A - B
+        rY.setSum(rZ, rY);                  // A + B
+        rZ.setDifference(t0, rT);           // D - C
+        rT.setSum(t0, rT);                  // D + C
+        return this;
+    }
+
+    /**
+     * $h = r$, in P2 representation (3 multiply).
+     */
+    public PointWorkspace toP2() {
+        X.setProduct(rX, rT);
+        Y.setProduct(rY, rZ);
+        Z.setProduct(rZ, rT);
+        return this;
+    }
+
+    /**
+     * $h = r$, in P3 representation (4 multiply).
+     */
+    public PointWorkspace toP3() {
+        X.setProduct(rX, rT);
+        Y.setProduct(rY, rZ);
+        Z.setProduct(rZ, rT);
+        T.setProduct(rX, rY);
+        return this;
+    }
+
+    /**
+     * Sets the CACHED operand to $h$, which must be in P3 representation (1 multiply, 1 add, 1 subtract).
+     */
+    public PointWorkspace toCached() {
+        cYpX.setSum(Y, X);
+        cYmX.setDifference(Y, X);
+        cZ.set(Z);
+        cT2d.setProduct(T, curve.get2D());
+        return this;
+    }
+
+    /**
+     * $h = a h$ where $a = a[0]+256*a[1]+\dots+256^{31} a[31]$, see {@link GroupElement#scalarMultiplyVariableBase(byte[])}.
+     * Constant time.
+     * <p>
+     * Preconditions:
+     *   $h$ is in P3 representation,
+     *   $a[31] \le 127$
+     */
+    public PointWorkspace scalarMultiplyVariableBase(final byte[] a) {
+        // P, 2P, ..., 8P
+        toCached();
+        packCached(0);
+        for (int i = 1; i < 8; i++) {
+            addCached().toP3();
+            packCached(i);
+        }
+
+        GroupElement.toRadix16(digitsA, a);
+        setZero();
+        for (int i = 63; i >= 0; i--) {
+            dbl().toP2().dbl().toP2().dbl().toP2().dbl().toP3();
+            selectCached(digitsA[i]);
+            addCached().toP3();
+        }
+        return this;
+    }
+
+    /**
+     * Stores $h$ in CACHED representation at the given index of the packed table.
+     */
+    private void packCached(final int index) {
+        final int offset = index * CACHED_SIZE;
+        t0.setSum(Y, X);
+        t0.pack(cachedTable, offset);
+        t0.setDifference(Y, X);
+        t0.pack(cachedTable, offset + FieldElement.PACKED_SIZE);
+        Z.pack(cachedTable, offset + 2 * FieldElement.PACKED_SIZE);
+        t0.setProduct(T, curve.get2D());
+        t0.pack(cachedTable, offset + 3 * FieldElement.PACKED_SIZE);
+    }
+
+    /**
+     * Sets the CACHED operand to $b P$ from the packed table of $P, 2P, \dots, 8P$.
+     * <p>
+     * No secret array indices, no secret branching.
+     * Constant time.
+     *
+     * @param b in $\{-8, -7, \dots, 8\}$
+     */
+    private void selectCached(final int b) {
+        // Is b negative?
+        final int bnegative = Utils.negative(b);
+        // |b|
+        final int babs = b - (((-bnegative) & b) << 1);
+
+        // Neutral element
+        cYpX.set(f.ONE);
+        cYmX.set(f.ONE);
+        cZ.set(f.ONE);
+        cT2d.set(f.ZERO);
+        int offset = 0;
+        for (int k = 1; k <= 8; k++, offset += CACHED_SIZE) {
+            final int m = Utils.equal(babs, k);
+            cYpX.setCmovPacked(cachedTable, offset, m);
+            cYmX.setCmovPacked(cachedTable, offset + FieldElement.PACKED_SIZE, m);
+            cZ.setCmovPacked(cachedTable, offset + 2 * FieldElement.PACKED_SIZE, m);
+            cT2d.setCmovPacked(cachedTable, offset + 3 * FieldElement.PACKED_SIZE, m);
+        }
+        // -(X, Y, Z, T) = (-X, Y, Z, -T): swap Y+X with Y-X and negate 2dT
+        t0.set(cYpX);
+        cYpX.setCmov(cYmX, bnegative);
+        cYmX.setCmov(t0, bnegative);
+        t0.setNegation(cT2d);
+        cT2d.setCmov(t0, bnegative);
+    }
+
+    /**
+     * @return $h$ as an encoded point, see {@link GroupElement#toByteArray()}.
+     */
+    public byte[] toByteArray() {
+        final byte[] s = new byte[32];
+        toByteArray(s);
+        return s;
+    }
+
+    /**
+     * Same as {@link #toByteArray()}, but writes the encoded point into the given array of 32 bytes.
+     */
+    public void toByteArray(final byte[] s) {
+        t0.setInverse(Z, t1, t2, t3, t4);
+        t1.setProduct(X, t0);
+        t2.setProduct(Y, t0);
+        t2.toByteArray(s);
+        s[31] |= (byte) (isNegative(t1) << 7);
+    }
+
+    private boolean isNonZero(final FieldElement x) {
+        x.toByteArray(encoded);
+        return Utils.equal(encoded, ZERO) == 0;
+    }
+
+    /**
+     * @return 1 if x is negative, see {@link FieldElement#isNegative()}, 0 otherwise.
+     */
+    private int isNegative(final FieldElement x) {
+        x.toByteArray(encoded);
+        return encoded[0] & 1;
+    }
+
+    /**
+     * @param repr P2 or P3.
+     * @return A copy of $h$ in the given representation.
+     */
+    public GroupElement get(final GroupElement.Representation repr) {
+        switch (repr) {
+            case P2:
+                return GroupElement.p2(curve, f.newElement().set(X), f.newElement().set(Y), f.newElement().set(Z));
+            case P3:
+                return GroupElement.p3(curve, f.newElement().set(X), f.newElement().set(Y), f.newElement().set(Z),
+                        f.newElement().set(T));
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Erases all the slots, e.g. once secret-dependent points are no longer needed. $h$ is set to the neutral element.
+     */
+    public void clear() {
+        setZero();
+        rX.set(f.ZERO);
+        rY.set(f.ZERO);
+        rZ.set(f.ZERO);
+        rT.set(f.ZERO);
+        cYpX.set(f.ZERO);
+        cYmX.set(f.ZERO);
+        cZ.set(f.ZERO);
+        cT2d.set(f.ZERO);
+        precomp.X.set(f.ZERO);
+        precomp.Y.set(f.ZERO);
+        precomp.Z.set(f.ZERO);
+        t0.set(f.ZERO);
+        t1.set(f.ZERO);
+        t2.set(f.ZERO);
+        t3.set(f.ZERO);
+        t4.set(f.ZERO);
+        t5.set(f.ZERO);
+        Arrays.fill(cachedTable, 0);
+        Arrays.fill(digitsA, (byte) 0);
+        Arrays.fill(digitsB, (byte) 0);
+        Arrays.fill(encoded, (byte) 0);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.ed25519;
+
+import java.io.Serializable;
+
+/**
+ * A table of points in PRECOMP representation $(y+x, y-x, 2dxy)$, organized in rows of the same number of entries.
+ * <p>
+ * All coordinates are packed in a single int array, entry after entry, {@link FieldElement#PACKED_SIZE} ints per
+ * coordinate, instead of one object per point and per coordinate. {@link #select(GroupElement, FieldElement, int, int)}
+ * scans a whole row linearly with masked copies, so that the memory access pattern does not depend on the entry that
+ * is looked up.
+ */
+public class PrecompTable implements Serializable {
+    private static final long serialVersionUID = 5831907623490578L;
+
+    private static final int ENTRY_SIZE = 3 * FieldElement.PACKED_SIZE;
+
+    private final Curve curve;
+    private final int rows;
+    private final int entries;
+    private final int[] table;
+
+    /**
+     * Creates a table with all entries set to zero.
+     *
+     * @param curve The curve.
+     * @param rows The number of rows.
+     * @param entries The number of entries per row.
+     */
+    public PrecompTable(final Curve curve, final int rows, final int entries) {
+        if (rows < 1 || entries < 1)
+            throw new IllegalArgumentException("Invalid table size " + rows + "x" + entries);
+        this.curve = curve;
+        this.rows = rows;
+        this.entries = entries;
+        this.table = new int[rows * entries * ENTRY_SIZE];
+    }
+
+    /**
+     * Creates a table from the given points.
+     *
+     * @param curve The curve.
+     * @param rows The number of rows.
+     * @param entries The number of entries per row.
+     * @param points The entries in PRECOMP representation, row after row.
+     */
+    public PrecompTable(final Curve curve, final int rows, final int entries, final GroupElement[] points) {
+        this(curve, rows, entries);
+        if (points.length != rows * entries)
+            throw new IllegalArgumentException("Expected " + rows * entries + " points, got " + points.length);
+        for (int i = 0; i < points.length; i++) {
+            set(i, points[i]);
+        }
+    }
+
+    public Curve getCurve() {
+        return curve;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return The approximate number of bytes retained by the table, not counting the shared curve, assuming a 64-bit
+     * JVM with compressed references.
+     */
+    public long getRetainedBytes() {
+        // Object header and fields, array header and elements
+        return 24 + 16 + 4L * table.length;
+    }
+
+    /**
+     * Sets an entry.
+     *
+     * @param index The index of the entry, i.e. row * {@link #getEntries()} + column.
+     * @param p The point in PRECOMP representation.
+     */
+    public void set(final int index, final GroupElement p) {
+        if (p.getRepresentation() != GroupElement.Representation.PRECOMP)
+            throw new IllegalArgumentException();
+        final int offset = index * ENTRY_SIZE;
+        p.getX().pack(table, offset);
+        p.getY().pack(table, offset + FieldElement.PACKED_SIZE);
+        p.getZ().pack(table, offset + 2 * FieldElement.PACKED_SIZE);
+    }
+
+    /**
+     * Sets one coordinate of an entry, so that tables can be filled without creating a point per entry.
+     *
+     * @param index The index of the entry, i.e. row * {@link #getEntries()} + column.
+     * @param coordinate 0 for $y+x$, 1 for $y-x$ and 2 for $2dxy$.
+     * @param value The value of the coordinate.
+     */
+    void set(final int index, final int coordinate, final FieldElement value) {
+        value.pack(table, index * ENTRY_SIZE + coordinate * FieldElement.PACKED_SIZE);
+    }
+
+    /**
+     * Gets an entry. Not constant time.
+     *
+     * @param index The index of the entry, i.e. row * {@link #getEntries()} + column.
+     * @return A copy of the entry, in PRECOMP representation.
+     */
+    public GroupElement get(final int index) {
+        final Ed25519Field f = curve.getField();
+        final FieldElement ypx = f.newElement();
+        final FieldElement ymx = f.newElement();
+        final FieldElement xy2d = f.newElement();
+        final int offset = index * ENTRY_SIZE;
+        ypx.setCmovPacked(table, offset, 1);
+        ymx.setCmovPacked(table, offset + FieldElement.PACKED_SIZE, 1);
+        xy2d.setCmovPacked(table, offset + 2 * FieldElement.PACKED_SIZE, 1);
+        return GroupElement.precomp(curve, ypx, ymx, xy2d);
+    }
+
+    /**
+     * @return Copies of all the entries, row after row.
+     */
+    public GroupElement[] toArray() {
+        final GroupElement[] points = new GroupElement[rows * entries];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = get(i);
+        }
+        return points;
+    }
+
+    /**
+     * Constant-time lookup of $b P_{row}$, where entry $k-1$ of the row holds $k P_{row}$.
+     * <p>
+     * No secret array indices, no secret branching.
+     *
+     * @param t The destination in PRECOMP representation, whose coordinates must be mutable.
+     * @param tmp Scratch field element.
+     * @param row The row.
+     * @param b The multiple, $|b| \le$ {@link #getEntries()}. The neutral element is selected for $b = 0$.
+     */
+    public void select(final GroupElement t, final FieldElement tmp, final int row, final int b) {
+        final Ed25519Field f = curve.getField();
+        final FieldElement ypx = t.getX();
+        final FieldElement ymx = t.getY();
+        final FieldElement xy2d = t.getZ();
+        // Is b negative?
+        final int bnegative = Utils.negative(b);
+        // |b|
+        final int babs = b - (((-bnegative) & b) << 1);
+
+        // Neutral element
+        ypx.set(f.ONE);
+        ymx.set(f.ONE);
+        xy2d.set(f.ZERO);
+        int offset = row * entries * ENTRY_SIZE;
+        for (int k = 1; k <= entries; k++, offset += ENTRY_SIZE) {
+            final int m = Utils.equal(babs, k);
+            ypx.setCmovPacked(table, offset, m);
+            ymx.setCmovPacked(table, offset + FieldElement.PACKED_SIZE, m);
+            xy2d.setCmovPacked(table, offset + 2 * FieldElement.PACKED_SIZE, m);
+        }
+        // -(x, y) = (-x, y): swap y+x with y-x and negate 2dxy
+        tmp.set(ypx);
+        ypx.setCmov(ymx, bnegative);
+        ymx.setCmov(tmp, bnegative);
+        tmp.setNegation(xy2d);
+        xy2d.setCmov(tmp, bnegative);
+    }
+}
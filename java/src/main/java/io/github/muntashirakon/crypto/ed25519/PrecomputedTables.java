@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.ed25519;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Reads and writes tables of points in PRECOMP representation that are generated at build time and bundled as
+ * resources, so that they don't have to be computed during class initialization.
+ * <p>
+ * A table resource is a 4-byte magic and the number of entries as a big-endian int, followed by the entries. Each
+ * entry holds the 32-byte encodings of $y+x$, $y-x$ and $2dxy$, which does not depend on the field implementation.
+ * <p>
+ * Not for external use, not maintained as a public API.
+ */
+public final class PrecomputedTables {
+    /**
+     * Size of an entry in bytes
+     */
+    public static final int ENTRY_SIZE = 3 * 32;
+
+    private static final int MAGIC = 0x45443235; // "ED25"
+
+    private PrecomputedTables() {
+    }
+
+    /**
+     * Reads a table resource with a single bulk read.
+     *
+     * @param owner The class relative to which the resource is resolved.
+     * @param name The name of the resource.
+     * @param entries The expected number of entries.
+     * @return The entries, or {@code null} if the resource does not exist or does not hold the expected number of
+     * entries, in which case the caller has to compute the table.
+     */
+    public static byte[] read(Class<?> owner, String name, int entries) {
+        InputStream is = owner.getResourceAsStream(name);
+        if (is == null) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(is)) {
+            if (in.readInt() != MAGIC || in.readInt() != entries) {
+                return null;
+            }
+            byte[] table = new byte[entries * ENTRY_SIZE];
+            in.readFully(table);
+            return in.read() == -1 ? table : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes a table resource.
+     *
+     * @param out The destination. It is not closed.
+     * @param table The entries, as returned by {@link #encode(GroupElement[])} or
+     *              {@link FixedBaseMultiplier#toByteArray()}.
+     */
+    public static void write(OutputStream out, byte[] table) throws IOException {
+        if (table.length % ENTRY_SIZE != 0)
+            throw new IllegalArgumentException("Invalid table length " + table.length);
+        DataOutputStream dos = new DataOutputStream(out);
+        dos.writeInt(MAGIC);
+        dos.writeInt(table.length / ENTRY_SIZE);
+        dos.write(table);
+        dos.flush();
+    }
+
+    /**
+     * Encodes the given group elements.
+     *
+     * @param points The group elements, in PRECOMP representation.
+     * @return The entries.
+     */
+    public static byte[] encode(GroupElement[] points) {
+        byte[] table = new byte[points.length * ENTRY_SIZE];
+        for (int i = 0; i < points.length; ++i) {
+            if (points[i].getRepresentation() != GroupElement.Representation.PRECOMP)
+                throw new IllegalArgumentException();
+            System.arraycopy(points[i].getX().toByteArray(), 0, table, i * ENTRY_SIZE, 32);
+            System.arraycopy(points[i].getY().toByteArray(), 0, table, i * ENTRY_SIZE + 32, 32);
+            System.arraycopy(points[i].getZ().toByteArray(), 0, table, i * ENTRY_SIZE + 64, 32);
+        }
+        return table;
+    }
+
+    /**
+     * Decodes group elements.
+     *
+     * @param curve The curve.
+     * @param table The entries.
+     * @param offset The first entry to decode.
+     * @param count The number of entries to decode.
+     * @return The group elements in PRECOMP representation.
+     */
+    public static GroupElement[] decode(Curve curve, byte[] table, int offset, int count) {
+        Ed25519Field f = curve.getField();
+        GroupElement[] points = new GroupElement[count];
+        byte[] bytes = new byte[32];
+        for (int i = 0; i < count; ++i) {
+            int pos = (offset + i) * ENTRY_SIZE;
+            System.arraycopy(table, pos, bytes, 0, 32);
+            FieldElement ypx = f.fromByteArray(bytes);
+            System.arraycopy(table, pos + 32, bytes, 0, 32);
+            FieldElement ymx = f.fromByteArray(bytes);
+            System.arraycopy(table, pos + 64, bytes, 0, 32);
+            FieldElement xy2d = f.fromByteArray(bytes);
+            points[i] = GroupElement.precomp(curve, ypx, ymx, xy2d);
+        }
+        return points;
+    }
+
+    /**
+     * Decodes entries into the given table, whose coordinates are written directly. Unlike
+     * {@link #decode(Curve, byte[], int, int)}, only a single field element is created, whatever the number of entries.
+     *
+     * @param table The entries.
+     * @param offset The first entry to decode.
+     * @param dst The table to fill, with as many entries as it holds.
+     */
+    public static void decode(byte[] table, int offset, PrecompTable dst) {
+        FieldElement tmp = dst.getCurve().getField().newElement();
+        byte[] bytes = new byte[32];
+        int count = dst.getRows() * dst.getEntries();
+        for (int i = 0; i < count; ++i) {
+            for (int c = 0; c < 3; ++c) {
+                System.arraycopy(table, (offset + i) * ENTRY_SIZE + c * 32, bytes, 0, 32);
+                dst.set(i, c, tmp.setFromByteArray(bytes));
+            }
+        }
+    }
+}
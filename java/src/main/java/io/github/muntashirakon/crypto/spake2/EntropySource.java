@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.spake2;
+
+import java.security.SecureRandom;
+
+/**
+ * Source of the random bytes of the ephemeral keys. A {@link SecureRandom} can be used as {@code random::nextBytes}.
+ */
+public interface EntropySource {
+    /**
+     * Fills the given array with random bytes.
+     */
+    void nextBytes(byte[] bytes);
+
+    /**
+     * @return The default source, which keeps a {@link SecureRandom} per thread and fetches its output in bulk.
+     */
+    static EntropySource getDefault() {
+        return ThreadLocalEntropySource.INSTANCE;
+    }
+
+    /**
+     * A source repeating the given bytes, for reproducible tests and benchmarks. <b>Never use it for real handshakes,
+     * since anyone knowing the bytes can recover the password.</b>
+     *
+     * @param bytes The bytes returned, repeated as needed to fill each request.
+     */
+    static EntropySource fixed(byte[] bytes) {
+        if (bytes.length == 0) {
+            throw new IllegalArgumentException("No bytes given");
+        }
+        final byte[] copy = bytes.clone();
+        return out -> {
+            for (int i = 0; i < out.length; i += copy.length) {
+                System.arraycopy(copy, 0, out, i, Math.min(copy.length, out.length - i));
+            }
+        };
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.spake2;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ThreadFactory;
+
+import javax.security.auth.Destroyable;
+
+import io.github.muntashirakon.crypto.ed25519.Ed25519;
+import io.github.muntashirakon.crypto.ed25519.Ed25519ScalarOps;
+import io.github.muntashirakon.crypto.ed25519.GroupElement;
+import io.github.muntashirakon.crypto.ed25519.PointWorkspace;
+
+/**
+ * Generates ephemeral keys x and the points x·B ahead of time on a background thread, which takes the most expensive
+ * scalar multiplication of {@link Spake2Context#generateMessage(byte[])} off the critical path. Neither depends on the
+ * password or on the names, so a pool can be shared by any number of contexts, see
+ * {@link Spake2Context#setEphemeralPool(EphemeralPool)}.
+ * <p>
+ * The pool holds at most {@code depth} keys. Once it holds {@code refillThreshold} keys or fewer, the background
+ * thread fills it up again. Each key is handed out once and erased from the pool as it is taken.
+ * <p>
+ * The background thread lives until {@link #destroy()} is called, which must be done once the pool is no longer
+ * needed. If the thread stops otherwise, e.g. when interrupted, the pool destroys itself.
+ */
+public final class EphemeralPool implements Destroyable {
+    private final int depth;
+    private final int refillThreshold;
+    private final EntropySource entropySource;
+    /**
+     * Guarded by this
+     */
+    private final ArrayDeque<Ephemeral> entries;
+
+    private boolean destroyed;
+
+    /**
+     * Same as {@link #EphemeralPool(int, int, EntropySource, ThreadFactory)} with the default entropy source and a
+     * daemon thread.
+     */
+    public EphemeralPool(int depth, int refillThreshold) {
+        this(depth, refillThreshold, EntropySource.getDefault(), r -> {
+            Thread thread = new Thread(r, "spake2-ephemeral-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates the pool and starts filling it.
+     *
+     * @param depth           Maximum number of keys held.
+     * @param refillThreshold Number of keys at or below which the pool is filled up again, less than depth.
+     * @param entropySource   Source of the ephemeral keys, used from the background thread only.
+     * @param threadFactory   Creates the background thread.
+     */
+    public EphemeralPool(int depth, int refillThreshold, EntropySource entropySource, ThreadFactory threadFactory) {
+        if (depth <= 0 || refillThreshold < 0 || refillThreshold >= depth) {
+            throw new IllegalArgumentException("Expected 0 <= refillThreshold < depth, got " + refillThreshold
+                    + " and " + depth);
+        }
+        this.depth = depth;
+        this.refillThreshold = refillThreshold;
+        this.entropySource = entropySource;
+        this.entries = new ArrayDeque<>(depth);
+        threadFactory.newThread(this::refill).start();
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getRefillThreshold() {
+        return refillThreshold;
+    }
+
+    /**
+     * @return The number of keys currently available.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Takes a key, waking up the background thread if the pool runs low.
+     *
+     * @return The key, or null if the pool is empty or destroyed.
+     */
+    synchronized Ephemeral poll() {
+        Ephemeral ephemeral = entries.poll();
+        if (entries.size() <= refillThreshold) {
+            notifyAll();
+        }
+        return ephemeral;
+    }
+
+    private void refill() {
+        Ed25519ScalarOps scalarOps = Ed25519.getSpec().getScalarOps();
+        byte[] entropy = new byte[64];
+        PointWorkspace ws = new PointWorkspace(Ed25519.getSpec().getCurve());
+        try {
+            while (true) {
+                synchronized (this) {
+                    while (!destroyed && entries.size() > refillThreshold) {
+                        wait();
+                    }
+                    if (destroyed) {
+                        return;
+                    }
+                }
+                // Fill up outside of the lock so that contexts can take keys meanwhile
+                boolean full;
+                do {
+                    Ephemeral ephemeral = new Ephemeral(entropySource, scalarOps, entropy, ws);
+                    synchronized (this) {
+                        if (destroyed) {
+                            ephemeral.erase();
+                            return;
+                        }
+                        entries.add(ephemeral);
+                        full = entries.size() >= depth;
+                    }
+                } while (!full);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // A pool that is no longer refilled must not look live
+            destroy();
+        }
+    }
+
+    /**
+     * Stops the background thread and erases the keys not yet taken. Contexts using the pool generate their keys
+     * themselves from then on.
+     */
+    @Override
+    public synchronized void destroy() {
+        if (destroyed) {
+            return;
+        }
+        destroyed = true;
+        for (Ephemeral ephemeral : entries) {
+            ephemeral.erase();
+        }
+        entries.clear();
+        notifyAll();
+    }
+
+    @Override
+    public synchronized boolean isDestroyed() {
+        return destroyed;
+    }
+
+    /**
+     * An ephemeral key and its public point, single-use.
+     */
+    static final class Ephemeral {
+        /**
+         * x, a multiple of eight
+         */
+        private final byte[] privateKey = new byte[32];
+        /**
+         * x·B in P3 representation
+         */
+        private final GroupElement publicPoint;
+
+        /**
+         * @param entropy Scratch, erased afterwards
+         * @param ws      Scratch, cleared afterwards
+         */
+        Ephemeral(EntropySource entropySource, Ed25519ScalarOps scalarOps, byte[] entropy, PointWorkspace ws) {
+            Spake2Context.generatePrivateKey(entropySource, scalarOps, entropy, privateKey);
+            Spake2Context.B_MULTIPLIER.scalarMultiply(privateKey, ws);
+            publicPoint = ws.get(GroupElement.Representation.P3);
+            ws.clear();
+        }
+
+        /**
+         * Copies the key and sets the workspace to its point, then erases both.
+         */
+        void moveTo(byte[] privateKey, PointWorkspace ws) {
+            System.arraycopy(this.privateKey, 0, privateKey, 0, 32);
+            ws.set(publicPoint);
+            erase();
+        }
+
+        void erase() {
+            Arrays.fill(privateKey, (byte) 0);
+            Spake2Context.erase(publicPoint);
+        }
+    }
+}
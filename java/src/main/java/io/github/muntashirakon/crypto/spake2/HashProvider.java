@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.spake2;
+
+import java.security.MessageDigest;
+import java.security.Provider;
+
+/**
+ * Source of the SHA-512 digests used for the password and the transcript, see
+ * {@link Spake2Context#setHashProvider(HashProvider)}. Looking up a digest with {@link MessageDigest#getInstance(String)}
+ * walks the list of security providers, so implementations are expected to do it once and reuse the result.
+ */
+public interface HashProvider {
+    /**
+     * @return A SHA-512 digest in its initial state, which the calling thread may use until its next call to this
+     * method, and does not retain afterwards.
+     * @throws IllegalArgumentException If SHA-512 is not supported.
+     */
+    MessageDigest getSha512() throws IllegalArgumentException;
+
+    /**
+     * @return The default provider, which keeps a digest per thread, from the most preferred security provider.
+     */
+    static HashProvider getDefault() {
+        return ThreadLocalHashProvider.DEFAULT;
+    }
+
+    /**
+     * @param provider The security provider of the digests.
+     * @return A provider keeping a digest per thread, from the given security provider.
+     */
+    static HashProvider of(Provider provider) {
+        return new ThreadLocalHashProvider(provider);
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.spake2;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks after a delay, to within one tick, for large numbers of timeouts that are mostly cancelled. Scheduling
+ * and cancelling never block: new timeouts are queued and moved to the wheel by the timer thread, and cancelled ones
+ * are only marked, then dropped when their bucket comes up. Tasks run on the timer thread and must be short.
+ */
+final class HashedWheelTimer {
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private final long startTime;
+    private volatile boolean stopped;
+
+    /**
+     * Creates the timer and starts its thread.
+     *
+     * @param tickMillis Resolution of the timer
+     * @param wheelSize  Number of buckets, rounded up to a power of two. Timeouts further than a round are kept
+     *                   in their bucket for as many rounds as needed.
+     */
+    HashedWheelTimer(long tickMillis, int wheelSize, ThreadFactory threadFactory) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Invalid tick or wheel size");
+        }
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheel = new Bucket[Math.max(size, 1)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheel.length - 1;
+        this.startTime = System.nanoTime();
+        this.worker = threadFactory.newThread(this::run);
+        this.worker.start();
+    }
+
+    /**
+     * @return A handle to cancel the task with. If the timer was stopped, the task never runs.
+     */
+    Timeout schedule(Runnable task, long delayMillis) {
+        Timeout timeout = new Timeout(task, System.nanoTime() - startTime
+                + TimeUnit.MILLISECONDS.toNanos(Math.max(delayMillis, 0)));
+        pending.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stops the timer thread. The tasks not run yet are dropped.
+     */
+    void stop() {
+        stopped = true;
+        worker.interrupt();
+    }
+
+    private void run() {
+        long tick = 0;
+        while (!stopped) {
+            long sleepNanos = (tick + 1) * tickNanos - (System.nanoTime() - startTime);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    continue;
+                }
+            }
+            transferPending(tick);
+            wheel[(int) (tick & mask)].expire(System.nanoTime() - startTime);
+            tick++;
+        }
+    }
+
+    private void transferPending(long currentTick) {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.state.get() != Timeout.ST_INIT) {
+                continue;
+            }
+            long ticks = timeout.deadline / tickNanos;
+            // Never schedule for the past, those are expired right away
+            long target = Math.max(ticks, currentTick);
+            timeout.remainingRounds = (target - currentTick) / wheel.length;
+            wheel[(int) (target & mask)].add(timeout);
+        }
+    }
+
+    static final class Timeout {
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private final Runnable task;
+        /**
+         * In nanoseconds since the start of the timer
+         */
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+        // Accessed by the timer thread only
+        private long remainingRounds;
+        private Timeout next;
+        private Timeout prev;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * @return false if the task has already run or was already cancelled.
+         */
+        boolean cancel() {
+            return state.compareAndSet(ST_INIT, ST_CANCELLED);
+        }
+    }
+
+    /**
+     * Doubly-linked list of timeouts, accessed by the timer thread only
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expire(long now) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.state.get() == Timeout.ST_CANCELLED) {
+                    remove(timeout);
+                } else if (timeout.remainingRounds <= 0 && timeout.deadline <= now) {
+                    remove(timeout);
+                    if (timeout.state.compareAndSet(Timeout.ST_INIT, Timeout.ST_EXPIRED)) {
+                        try {
+                            timeout.task.run();
+                        } catch (RuntimeException ignore) {
+                            // Keep the timer running for the other tasks
+                        }
+                    }
+                } else if (timeout.remainingRounds > 0) {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.next = timeout.prev = null;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.spake2;
+
+import java.util.Arrays;
+
+import io.github.muntashirakon.crypto.ed25519.FixedBaseMultiplier;
+import io.github.muntashirakon.crypto.ed25519.PointWorkspace;
+
+/**
+ * Computes a password mask of a {@link Spake2Context} on an executor. The context takes the result when it needs it,
+ * and computes it itself if no thread has started yet, so that a busy executor never delays the handshake. A task is
+ * owned by one context and reused for all of its handshakes, one computation at a time.
+ */
+final class ScalarMultiplyTask implements Runnable {
+    private static final int IDLE = 0;
+    private static final int QUEUED = 1;
+    private static final int RUNNING = 2;
+    private static final int DONE = 3;
+
+    private final PointWorkspace ws;
+    private final byte[] scalar = new byte[32];
+    private FixedBaseMultiplier multiplier;
+    /**
+     * Guarded by this
+     */
+    private int state = IDLE;
+
+    ScalarMultiplyTask(PointWorkspace ws) {
+        this.ws = ws;
+    }
+
+    /**
+     * Prepares the computation of scalar·P where P is the base point of the multiplier. The caller then either runs
+     * the task on an executor or leaves it to {@link #take(PointWorkspace)}.
+     */
+    synchronized void prepare(FixedBaseMultiplier multiplier, byte[] scalar) {
+        awaitIdle();
+        this.multiplier = multiplier;
+        System.arraycopy(scalar, 0, this.scalar, 0, 32);
+        this.state = QUEUED;
+    }
+
+    /**
+     * @return Whether a computation was prepared and not yet taken.
+     */
+    synchronized boolean isPrepared() {
+        return state != IDLE;
+    }
+
+    @Override
+    public void run() {
+        synchronized (this) {
+            // Already taken, cancelled, or run by the context itself
+            if (state != QUEUED) {
+                return;
+            }
+            state = RUNNING;
+        }
+        compute();
+    }
+
+    /**
+     * Sets the accumulator of the given workspace to the result, computing it on the calling thread if needed.
+     */
+    void take(PointWorkspace out) {
+        boolean steal;
+        synchronized (this) {
+            if (state == IDLE) {
+                throw new IllegalStateException("No mask was prepared");
+            }
+            steal = state == QUEUED;
+            if (steal) {
+                state = RUNNING;
+            }
+        }
+        if (steal) {
+            compute();
+        }
+        synchronized (this) {
+            awaitDone();
+            out.set(ws);
+            erase();
+        }
+    }
+
+    /**
+     * Drops the computation, if any, waiting for a running one to finish, and erases its secrets.
+     */
+    synchronized void cancel() {
+        awaitIdle();
+    }
+
+    private void compute() {
+        multiplier.scalarMultiply(scalar, ws);
+        synchronized (this) {
+            state = DONE;
+            notifyAll();
+        }
+    }
+
+    private void awaitIdle() {
+        awaitDone();
+        erase();
+    }
+
+    private void awaitDone() {
+        boolean interrupted = false;
+        while (state == RUNNING) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                // The computation is short, and the workspace must not be reused before it finishes
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void erase() {
+        Arrays.fill(scalar, (byte) 0);
+        ws.clear();
+        multiplier = null;
+        state = IDLE;
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.spake2;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import javax.security.auth.Destroyable;
+
+/**
+ * Drives one side of a handshake over a non-blocking transport, in the manner of {@link javax.net.ssl.SSLEngine}:
+ * {@link #wrap(ByteBuffer)} produces the bytes to send, {@link #unwrap(ByteBuffer)} consumes the bytes received, and
+ * the scalar multiplications are left to {@link #getDelegatedTask()}, so that the thread moving the bytes, e.g. a
+ * {@link java.nio.channels.Selector} loop, never computes. Both only copy whatever fits, so that partial reads and
+ * writes are resumed by the next call. The messages have a fixed size, {@link Spake2Context#MAX_MSG_SIZE}, and need
+ * no other framing.
+ * <p>
+ * A typical loop, with {@code wakeUp} registering the connection's interest in {@link #wantsRead()} and
+ * {@link #wantsWrite()} again:
+ * <pre>
+ * Runnable task;
+ * while ((task = handshake.getDelegatedTask()) != null) {
+ *     final Runnable delegated = task;
+ *     executor.execute(() -&gt; {
+ *         delegated.run();
+ *         wakeUp(connection);
+ *     });
+ * }
+ * if (readable) handshake.unwrap(inBuffer);
+ * if (writable) handshake.wrap(outBuffer);
+ * if (handshake.getStatus() == Status.FINISHED) key = handshake.getKey();
+ * </pre>
+ * The methods can be called from any thread, the delegated tasks running concurrently with the others.
+ */
+public final class Spake2Handshake implements Destroyable {
+    public enum Status {
+        /**
+         * A computation is to be obtained from {@link #getDelegatedTask()}, or has not finished
+         */
+        NEED_TASK,
+        /**
+         * The message is ready, and not entirely written by {@link #wrap(ByteBuffer)}
+         */
+        NEED_WRAP,
+        /**
+         * The peer's message is not entirely read by {@link #unwrap(ByteBuffer)}
+         */
+        NEED_UNWRAP,
+        /**
+         * The key is available from {@link #getKey()}
+         */
+        FINISHED,
+        /**
+         * A computation failed, see {@link #getFailure()}, or the handshake was destroyed
+         */
+        FAILED,
+    }
+
+    private final Spake2Context context;
+    /**
+     * Copy of the password, erased once the message is generated, or null
+     */
+    private final byte[] password;
+    private final Spake2Password derivedPassword;
+    private final byte[] myMsg = new byte[Spake2Context.MAX_MSG_SIZE];
+    private final byte[] peerMsg = new byte[Spake2Context.MAX_MSG_SIZE];
+    private final byte[] key = new byte[Spake2Context.MAX_KEY_SIZE];
+    // Guarded by this
+    private boolean generated;
+    private int written;
+    private int read;
+    private boolean keyGenerated;
+    /**
+     * Whether a delegated task was handed out and has not finished
+     */
+    private boolean taskPending;
+    private RuntimeException failure;
+    private boolean destroyed;
+
+    /**
+     * @param context  A context in its initial state, which the handshake takes over and destroys along with itself.
+     * @param password Shared password, copied.
+     */
+    public Spake2Handshake(Spake2Context context, final byte[] password) {
+        this.context = context;
+        this.password = password.clone();
+        this.derivedPassword = null;
+    }
+
+    /**
+     * Same as {@link #Spake2Handshake(Spake2Context, byte[])} with a password derived beforehand, which is not
+     * destroyed along with the handshake.
+     */
+    public Spake2Handshake(Spake2Context context, final Spake2Password password) {
+        this.context = context;
+        this.password = null;
+        this.derivedPassword = password;
+    }
+
+    public synchronized Status getStatus() {
+        if (failure != null || destroyed) {
+            return Status.FAILED;
+        }
+        if (!generated) {
+            return Status.NEED_TASK;
+        }
+        if (written < myMsg.length) {
+            return Status.NEED_WRAP;
+        }
+        if (read < peerMsg.length) {
+            return Status.NEED_UNWRAP;
+        }
+        return keyGenerated ? Status.FINISHED : Status.NEED_TASK;
+    }
+
+    /**
+     * @return Whether {@link #unwrap(ByteBuffer)} expects more bytes. The peer's message can arrive at any time, even
+     * before this side's message is ready.
+     */
+    public synchronized boolean wantsRead() {
+        return failure == null && !destroyed && read < peerMsg.length;
+    }
+
+    /**
+     * @return Whether {@link #wrap(ByteBuffer)} has bytes to write.
+     */
+    public synchronized boolean wantsWrite() {
+        return failure == null && !destroyed && generated && written < myMsg.length;
+    }
+
+    /**
+     * @return The next computation, to be run on any thread, or null if there is none to run now: either the one
+     * handed out earlier has not finished, or the handshake waits for bytes to be moved, or it is over. The status
+     * is updated once the task has run.
+     */
+    public synchronized Runnable getDelegatedTask() {
+        if (taskPending || failure != null || destroyed) {
+            return null;
+        }
+        if (!generated) {
+            taskPending = true;
+            return this::generate;
+        }
+        if (read == peerMsg.length && !keyGenerated) {
+            taskPending = true;
+            return this::process;
+        }
+        return null;
+    }
+
+    /**
+     * Copies as much of the message as fits into the given buffer, if the message is ready.
+     *
+     * @param dst Buffer to send, whose position is advanced by the number of bytes copied.
+     * @return The status after the copy.
+     * @throws IllegalStateException If the handshake failed or was destroyed.
+     */
+    public synchronized Status wrap(ByteBuffer dst) throws IllegalStateException {
+        checkUsable();
+        if (generated) {
+            int length = Math.min(dst.remaining(), myMsg.length - written);
+            dst.put(myMsg, written, length);
+            written += length;
+        }
+        return getStatus();
+    }
+
+    /**
+     * Copies as much of the peer's message as is available from the given buffer. The bytes following the message,
+     * if any, are left in the buffer.
+     *
+     * @param src Buffer received, whose position is advanced by the number of bytes copied.
+     * @return The status after the copy.
+     * @throws IllegalStateException If the handshake failed or was destroyed.
+     */
+    public synchronized Status unwrap(ByteBuffer src) throws IllegalStateException {
+        checkUsable();
+        int length = Math.min(src.remaining(), peerMsg.length - read);
+        src.get(peerMsg, read, length);
+        read += length;
+        return getStatus();
+    }
+
+    /**
+     * @return A copy of the key, see {@link Spake2Context#processMessage(byte[])}.
+     * @throws IllegalStateException If the status is not {@link Status#FINISHED}.
+     */
+    public synchronized byte[] getKey() throws IllegalStateException {
+        checkUsable();
+        if (!keyGenerated) {
+            throw new IllegalStateException("The key has not been generated yet.");
+        }
+        return key.clone();
+    }
+
+    /**
+     * @return The exception thrown by a delegated task, e.g. an {@link IllegalArgumentException} if the peer's message
+     * is invalid, or null.
+     */
+    public synchronized RuntimeException getFailure() {
+        return failure;
+    }
+
+    private void checkUsable() throws IllegalStateException {
+        if (destroyed) {
+            throw new IllegalStateException("The handshake was destroyed.");
+        }
+        if (failure != null) {
+            throw new IllegalStateException("The handshake failed.", failure);
+        }
+    }
+
+    private void generate() {
+        RuntimeException error = null;
+        try {
+            if (derivedPassword != null) {
+                context.generateMessage(derivedPassword, myMsg, 0);
+            } else {
+                context.generateMessage(password, myMsg, 0);
+            }
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        synchronized (this) {
+            if (password != null) {
+                Arrays.fill(password, (byte) 0);
+            }
+            generated = error == null;
+            finishTask(error);
+        }
+    }
+
+    private void process() {
+        RuntimeException error = null;
+        try {
+            // The peer's message is complete, so unwrap() no longer writes to it
+            context.processMessage(peerMsg, key, 0);
+        } catch (RuntimeException e) {
+            error = e;
+        }
+        synchronized (this) {
+            keyGenerated = error == null;
+            finishTask(error);
+        }
+    }
+
+    private void finishTask(RuntimeException error) {
+        taskPending = false;
+        if (error != null && failure == null) {
+            failure = error;
+        }
+        if (destroyed) {
+            // Written or read by the task after destroy()
+            Arrays.fill(key, (byte) 0);
+            Arrays.fill(peerMsg, (byte) 0);
+        }
+    }
+
+    @Override
+    public synchronized boolean isDestroyed() {
+        return destroyed;
+    }
+
+    /**
+     * Erases the key and destroys the context. A delegated task still running fails.
+     */
+    @Override
+    public synchronized void destroy() {
+        destroyed = true;
+        context.destroy();
+        Arrays.fill(key, (byte) 0);
+        if (!taskPending) {
+            // Otherwise erased by the task, which may still be reading them
+            Arrays.fill(peerMsg, (byte) 0);
+            if (password != null) {
+                Arrays.fill(password, (byte) 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.spake2;
+
+import java.security.MessageDigest;
+
+/**
+ * The role and the names of one side, for any number of handshakes, concurrent or not. The transcript hashed into the
+ * key starts with the two names, so they are hashed once here and the digest is cloned for each handshake. This pays
+ * off with long names: when both fit in less than one SHA-512 block, hashing them again is cheaper than a clone, and
+ * does not allocate. The cached prefix is only used by contexts with the same {@link HashProvider}, see
+ * {@link Spake2Context#setHashProvider(HashProvider)}; the others hash the names themselves.
+ *
+ * @see Spake2Context#Spake2Context(Spake2Identity, EntropySource)
+ */
+public final class Spake2Identity {
+    /**
+     * Size of a SHA-512 block. Below this, nothing has been compressed yet and a clone saves no work.
+     */
+    private static final int BLOCK_SIZE = 128;
+
+    private final Spake2Role myRole;
+    private final byte[] myName;
+    private final byte[] theirName;
+    private final HashProvider hashProvider;
+    /**
+     * Digest having absorbed the names, never updated afterwards, or null to hash the names for each handshake
+     */
+    private final MessageDigest prefix;
+
+    /**
+     * Same as {@link #Spake2Identity(Spake2Role, byte[], byte[], HashProvider)} with the default provider.
+     */
+    public Spake2Identity(Spake2Role myRole, final byte[] myName, final byte[] theirName) {
+        this(myRole, myName, theirName, HashProvider.getDefault());
+    }
+
+    /**
+     * @param hashProvider Hashes the names, to be set on the contexts as well.
+     */
+    public Spake2Identity(Spake2Role myRole, final byte[] myName, final byte[] theirName,
+                          HashProvider hashProvider) {
+        if (hashProvider == null) {
+            throw new IllegalArgumentException("No hash provider given");
+        }
+        this.myRole = myRole;
+        this.myName = myName.clone();
+        this.theirName = theirName.clone();
+        this.hashProvider = hashProvider;
+        this.prefix = 16 + myName.length + theirName.length >= BLOCK_SIZE ? createPrefix() : null;
+    }
+
+    public Spake2Role getMyRole() {
+        return myRole;
+    }
+
+    public byte[] getMyName() {
+        return myName.clone();
+    }
+
+    public byte[] getTheirName() {
+        return theirName.clone();
+    }
+
+    public HashProvider getHashProvider() {
+        return hashProvider;
+    }
+
+    byte[] myName() {
+        return myName;
+    }
+
+    byte[] theirName() {
+        return theirName;
+    }
+
+    /**
+     * @return Whether the names are hashed once rather than for each handshake.
+     */
+    public boolean isPrefixCached() {
+        return prefix != null;
+    }
+
+    /**
+     * Starts the transcript of a handshake with the names.
+     *
+     * @param hashProvider Provider of the context, whose digest is used unless the prefix is cached with it.
+     * @param lengthPrefix Scratch for {@link Spake2Context#updateWithLengthPrefix(MessageDigest, byte[], byte[], int)}
+     * @return The digest to continue the transcript with.
+     */
+    MessageDigest startTranscript(HashProvider hashProvider, byte[] lengthPrefix) {
+        if (prefix != null && hashProvider == this.hashProvider) {
+            try {
+                // Cloning only reads the state of the prefix, which is never updated, so this is thread-safe
+                return (MessageDigest) prefix.clone();
+            } catch (CloneNotSupportedException e) {
+                // Cloned once by createPrefix()
+                throw new AssertionError(e);
+            }
+        }
+        MessageDigest sha = hashProvider.getSha512();
+        updateNames(sha, lengthPrefix);
+        return sha;
+    }
+
+    private void updateNames(MessageDigest sha, byte[] lengthPrefix) {
+        if (myRole == Spake2Role.Alice) {
+            Spake2Context.updateWithLengthPrefix(sha, lengthPrefix, myName, myName.length);
+            Spake2Context.updateWithLengthPrefix(sha, lengthPrefix, theirName, theirName.length);
+        } else { // Bob
+            Spake2Context.updateWithLengthPrefix(sha, lengthPrefix, theirName, theirName.length);
+            Spake2Context.updateWithLengthPrefix(sha, lengthPrefix, myName, myName.length);
+        }
+    }
+
+    /**
+     * @return A digest having absorbed the names, or null if it cannot be cloned.
+     */
+    private MessageDigest createPrefix() {
+        MessageDigest sha = hashProvider.getSha512();
+        updateNames(sha, new byte[8]);
+        try {
+            return (MessageDigest) sha.clone();
+        } catch (CloneNotSupportedException e) {
+            return null;
+        } finally {
+            sha.reset();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.spake2;
+
+import java.util.Arrays;
+
+import javax.security.auth.Destroyable;
+
+import io.github.muntashirakon.crypto.ed25519.Ed25519;
+import io.github.muntashirakon.crypto.ed25519.GroupElement;
+import io.github.muntashirakon.crypto.ed25519.PointWorkspace;
+
+/**
+ * A password derived once for any number of handshakes, concurrent or not: its SHA-512 hash, the password scalar and,
+ * optionally, the two masks w·M and w·N. With the masks, each side of a handshake saves one scalar multiplication in
+ * {@link Spake2Context#generateMessage(Spake2Password)} and another in {@link Spake2Context#processMessage(byte[])}.
+ * <p>
+ * Contexts copy the hash and the scalar when generating their message, but read the masks later on. Destroying the
+ * password while handshakes are in progress is safe: those handshakes compute the masks themselves.
+ *
+ * @see Spake2PasswordCache
+ */
+public final class Spake2Password implements Destroyable {
+    private final byte[] hash = new byte[64];
+    /**
+     * The reduced hash, as used when {@link Spake2Context#setDisablePasswordScalarHack(boolean)} is set
+     */
+    private final byte[] scalar = new byte[32];
+    /**
+     * The reduced hash, made a multiple of eight
+     */
+    private final byte[] adjustedScalar = new byte[32];
+    /**
+     * adjustedScalar·M and adjustedScalar·N, in P3 representation, or null if not precomputed
+     */
+    private final GroupElement maskM;
+    private final GroupElement maskN;
+
+    private boolean destroyed;
+
+    /**
+     * Same as {@link #of(byte[], boolean)} with the masks precomputed.
+     */
+    public static Spake2Password of(final byte[] password) {
+        return of(password, true);
+    }
+
+    /**
+     * @param password        The password, not retained.
+     * @param precomputeMasks Whether to also compute the masks, which costs two scalar multiplications and pays off
+     *                        from the first handshake on.
+     */
+    public static Spake2Password of(final byte[] password, boolean precomputeMasks) {
+        return of(password, precomputeMasks, HashProvider.getDefault());
+    }
+
+    /**
+     * Same as {@link #of(byte[], boolean)}, hashing the password with the given provider, e.g. the one set with
+     * {@link Spake2Context#setHashProvider(HashProvider)}.
+     */
+    public static Spake2Password of(final byte[] password, boolean precomputeMasks, HashProvider hashProvider) {
+        byte[] hash = hashProvider.getSha512().digest(password);
+        try {
+            return new Spake2Password(hash, precomputeMasks);
+        } finally {
+            Arrays.fill(hash, (byte) 0);
+        }
+    }
+
+    /**
+     * @param hash SHA-512 hash of the password, copied.
+     */
+    Spake2Password(final byte[] hash, boolean precomputeMasks) {
+        System.arraycopy(hash, 0, this.hash, 0, this.hash.length);
+        byte[] order = new byte[32];
+        Spake2Context.derivePasswordScalar(Ed25519.getSpec().getScalarOps(), this.hash, this.scalar, order, false);
+        Spake2Context.derivePasswordScalar(Ed25519.getSpec().getScalarOps(), this.hash, this.adjustedScalar, order,
+                true);
+        if (precomputeMasks) {
+            PointWorkspace ws = new PointWorkspace(Ed25519.getSpec().getCurve());
+            Spake2Context.SPAKE_M_MULTIPLIER.scalarMultiply(this.adjustedScalar, ws);
+            maskM = ws.get(GroupElement.Representation.P3);
+            Spake2Context.SPAKE_N_MULTIPLIER.scalarMultiply(this.adjustedScalar, ws);
+            maskN = ws.get(GroupElement.Representation.P3);
+            ws.clear();
+        } else {
+            maskM = null;
+            maskN = null;
+        }
+    }
+
+    /**
+     * @return Whether the masks were precomputed.
+     */
+    public boolean hasMasks() {
+        return maskM != null;
+    }
+
+    /**
+     * Copies the hash and the password scalar.
+     *
+     * @param disablePasswordScalarHack Whether to copy the scalar as reduced rather than the adjusted one.
+     * @throws IllegalStateException If the password was destroyed.
+     */
+    synchronized void copyTo(byte[] hash, byte[] scalar, boolean disablePasswordScalarHack)
+            throws IllegalStateException {
+        if (destroyed) {
+            throw new IllegalStateException("The password was destroyed.");
+        }
+        System.arraycopy(this.hash, 0, hash, 0, this.hash.length);
+        System.arraycopy(disablePasswordScalarHack ? this.scalar : this.adjustedScalar, 0, scalar, 0, 32);
+    }
+
+    /**
+     * Sets the workspace to the mask of the given side, w·M for Alice or w·N for Bob.
+     *
+     * @return false if the masks were not precomputed or if the password was destroyed, in which case the workspace
+     * is left untouched.
+     */
+    synchronized boolean loadMask(Spake2Role sender, PointWorkspace ws) {
+        if (destroyed || maskM == null) {
+            return false;
+        }
+        ws.set(sender == Spake2Role.Alice ? maskM : maskN);
+        return true;
+    }
+
+    /**
+     * Erases the derived values. Contexts that have already generated their message with this password are not
+     * affected.
+     */
+    @Override
+    public synchronized void destroy() {
+        if (destroyed) {
+            return;
+        }
+        destroyed = true;
+        Arrays.fill(hash, (byte) 0);
+        Arrays.fill(scalar, (byte) 0);
+        Arrays.fill(adjustedScalar, (byte) 0);
+        if (maskM != null) {
+            Spake2Context.erase(maskM);
+            Spake2Context.erase(maskN);
+        }
+    }
+
+    @Override
+    public synchronized boolean isDestroyed() {
+        return destroyed;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.spake2;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A bounded cache of {@link Spake2Password}s, keyed by the SHA-512 hash of the password, for servers pairing many
+ * peers with the same few passwords. The least recently used password is evicted when the cache is full.
+ * <p>
+ * Evicted passwords are not destroyed, since other threads may still be using them: they are left to the garbage
+ * collector, or to the callers to destroy once no handshake needs them. The passwords are derived outside of the
+ * lock of the cache, so that lookups never wait for the derivation of another password. Concurrent lookups of the
+ * same absent password wait for a single derivation.
+ */
+public final class Spake2PasswordCache {
+    private final int maxEntries;
+    private final boolean precomputeMasks;
+    private final HashProvider hashProvider;
+    /**
+     * Passwords by hash, completed once derived. The keys are copies of the hashes, erased when removed.
+     */
+    private final LinkedHashMap<ByteBuffer, CompletableFuture<Spake2Password>> entries;
+
+    /**
+     * @param maxEntries      Maximum number of passwords kept.
+     * @param precomputeMasks Whether the passwords have their masks precomputed, see
+     *                        {@link Spake2Password#of(byte[], boolean)}.
+     */
+    public Spake2PasswordCache(int maxEntries, boolean precomputeMasks) {
+        this(maxEntries, precomputeMasks, HashProvider.getDefault());
+    }
+
+    /**
+     * Same as {@link #Spake2PasswordCache(int, boolean)}, hashing the passwords with the given provider.
+     */
+    public Spake2PasswordCache(int maxEntries, boolean precomputeMasks, HashProvider hashProvider) {
+        if (hashProvider == null) {
+            throw new IllegalArgumentException("No hash provider given");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.precomputeMasks = precomputeMasks;
+        this.hashProvider = hashProvider;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @param password The password, not retained.
+     * @return The cached password, derived first if absent. It remains valid after being evicted.
+     */
+    public Spake2Password get(final byte[] password) {
+        byte[] hash = hashProvider.getSha512().digest(password);
+        try {
+            ByteBuffer key = ByteBuffer.wrap(hash);
+            CompletableFuture<Spake2Password> future;
+            synchronized (this) {
+                future = entries.get(key);
+                if (future == null) {
+                    key = ByteBuffer.wrap(hash.clone());
+                    entries.put(key, future = new CompletableFuture<>());
+                    if (entries.size() > maxEntries) {
+                        Iterator<ByteBuffer> it = entries.keySet().iterator();
+                        ByteBuffer eldest = it.next();
+                        it.remove();
+                        Arrays.fill(eldest.array(), (byte) 0);
+                    }
+                } else {
+                    key = null;
+                }
+            }
+            if (key != null) {
+                // Derived by the first thread to look it up
+                derive(key, hash, future);
+            }
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        } finally {
+            Arrays.fill(hash, (byte) 0);
+        }
+    }
+
+    private void derive(ByteBuffer key, final byte[] hash, CompletableFuture<Spake2Password> future) {
+        try {
+            future.complete(new Spake2Password(hash, precomputeMasks));
+        } catch (Throwable e) {
+            // Including errors, so that the threads waiting for the password are not left hanging
+            synchronized (this) {
+                entries.remove(key, future);
+            }
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * @return The number of passwords cached.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all the passwords, without destroying them.
+     */
+    public synchronized void clear() {
+        for (ByteBuffer key : entries.keySet()) {
+            Arrays.fill(key.array(), (byte) 0);
+        }
+        entries.clear();
+    }
+}
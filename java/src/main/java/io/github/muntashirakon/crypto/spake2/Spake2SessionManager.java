@@ -0,0 +1,267 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.spake2;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.security.auth.Destroyable;
+
+/**
+ * Handshakes in progress on the side of a server, keyed by connection. Each session starts with
+ * {@link #begin(Object, byte[])}, which returns the message to send, and ends with
+ * {@link #complete(Object, byte[])}, which returns the key. Sessions not completed within the timeout are destroyed.
+ * <p>
+ * The sessions are kept in a {@link ConcurrentHashMap}, so that threads working on different connections do not
+ * contend. The timeouts are kept in a hashed wheel, where scheduling and cancelling never block, and expire within
+ * {@code timeout / 256} of their deadline. The number of sessions is bounded: when all the slots are taken, new
+ * sessions are either rejected or wait for a slot.
+ *
+ * @param <K> Type of the connection identifiers, with value-based {@link Object#equals(Object)}.
+ */
+public final class Spake2SessionManager<K> implements Destroyable {
+    private static final int WHEEL_SIZE = 256;
+
+    private final Spake2Identity identity;
+    private final EntropySource entropySource;
+    private final int maxSessions;
+    private final long timeoutMillis;
+    private final ConcurrentHashMap<K, Session> sessions = new ConcurrentHashMap<>();
+    private final Semaphore slots;
+    private final HashedWheelTimer timer;
+    private volatile boolean destroyed;
+
+    /**
+     * Same as {@link #Spake2SessionManager(Spake2Identity, int, long, ThreadFactory)} with a daemon timer thread.
+     */
+    public Spake2SessionManager(Spake2Identity identity, int maxSessions, long timeoutMillis) {
+        this(identity, maxSessions, timeoutMillis, r -> {
+            Thread thread = new Thread(r, "spake2-session-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Same as {@link #Spake2SessionManager(Spake2Identity, int, long, ThreadFactory, EntropySource)} with the default
+     * entropy source.
+     */
+    public Spake2SessionManager(Spake2Identity identity, int maxSessions, long timeoutMillis,
+                                ThreadFactory threadFactory) {
+        this(identity, maxSessions, timeoutMillis, threadFactory, EntropySource.getDefault());
+    }
+
+    /**
+     * @param identity      Role, names and hash provider of this side for all the sessions.
+     * @param maxSessions   Maximum number of sessions in progress.
+     * @param timeoutMillis Time allowed between the beginning and the completion of a session.
+     * @param threadFactory Creates the thread expiring the sessions.
+     * @param entropySource Source of the ephemeral keys of all the sessions.
+     */
+    public Spake2SessionManager(Spake2Identity identity, int maxSessions, long timeoutMillis,
+                                ThreadFactory threadFactory, EntropySource entropySource) {
+        if (maxSessions <= 0 || timeoutMillis <= 0) {
+            throw new IllegalArgumentException("maxSessions and timeoutMillis must be positive");
+        }
+        this.identity = identity;
+        this.entropySource = entropySource;
+        this.maxSessions = maxSessions;
+        this.timeoutMillis = timeoutMillis;
+        this.slots = new Semaphore(maxSessions);
+        this.timer = new HashedWheelTimer(Math.max(timeoutMillis / WHEEL_SIZE, 1), WHEEL_SIZE, threadFactory);
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * @return The number of sessions in progress.
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Starts a session if a slot is free.
+     *
+     * @param id       Identifier of the connection, unique among the sessions in progress.
+     * @param password Shared password.
+     * @return The message to send to the peer.
+     * @throws IllegalStateException    If all the slots are taken, or if the manager was destroyed.
+     * @throws IllegalArgumentException If a session with the same identifier is in progress.
+     */
+    public byte[] begin(K id, final byte[] password) throws IllegalArgumentException, IllegalStateException {
+        acquireSlot();
+        Spake2Context context = newContext();
+        try {
+            return start(id, context, context.generateMessage(password));
+        } catch (RuntimeException e) {
+            context.destroy();
+            slots.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Same as {@link #begin(Object, byte[])} with a password derived beforehand.
+     */
+    public byte[] begin(K id, final Spake2Password password) throws IllegalArgumentException, IllegalStateException {
+        acquireSlot();
+        return beginWithSlot(id, password);
+    }
+
+    /**
+     * Same as {@link #begin(Object, Spake2Password)}, but waits for a slot to become free.
+     *
+     * @param waitMillis Maximum time to wait for a slot.
+     * @throws IllegalStateException If no slot became free in time, or if the manager was destroyed.
+     * @throws InterruptedException  If interrupted while waiting for a slot.
+     */
+    public byte[] begin(K id, final Spake2Password password, long waitMillis)
+            throws IllegalArgumentException, IllegalStateException, InterruptedException {
+        checkDestroyed();
+        if (!slots.tryAcquire(waitMillis, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("No session slot became free in time.");
+        }
+        return beginWithSlot(id, password);
+    }
+
+    private byte[] beginWithSlot(K id, final Spake2Password password) {
+        Spake2Context context = newContext();
+        try {
+            return start(id, context, context.generateMessage(password));
+        } catch (RuntimeException e) {
+            context.destroy();
+            slots.release();
+            throw e;
+        }
+    }
+
+    private Spake2Context newContext() {
+        // With the hash provider of the identity, for which its prefix is cached
+        return new Spake2Context(identity, entropySource);
+    }
+
+    /**
+     * Publishes the session. On failure, the caller destroys the context and releases the slot.
+     */
+    private byte[] start(K id, Spake2Context context, byte[] msg) {
+        Session session = new Session(context);
+        if (sessions.putIfAbsent(id, session) != null) {
+            throw new IllegalArgumentException("A session is already in progress for " + id);
+        }
+        session.timeout = timer.schedule(() -> {
+            if (sessions.remove(id, session)) {
+                end(session);
+            }
+        }, timeoutMillis);
+        if (destroyed && sessions.remove(id, session)) {
+            // Raced with destroy()
+            session.timeout.cancel();
+            throw new IllegalStateException("The session manager was destroyed.");
+        }
+        return msg;
+    }
+
+    /**
+     * Ends a session with the message of the peer. The session is ended even if the message is invalid.
+     *
+     * @param id      Identifier of the connection.
+     * @param peerMsg Message received from the peer.
+     * @return The key, see {@link Spake2Context#processMessage(byte[])}.
+     * @throws IllegalStateException    If no session is in progress for this identifier, e.g. because it expired.
+     * @throws IllegalArgumentException If the message is invalid.
+     */
+    public byte[] complete(K id, final byte[] peerMsg) throws IllegalArgumentException, IllegalStateException {
+        Session session = sessions.remove(id);
+        if (session == null) {
+            throw new IllegalStateException("No session in progress for " + id);
+        }
+        try {
+            return session.context.processMessage(peerMsg);
+        } finally {
+            end(session);
+        }
+    }
+
+    /**
+     * Ends a session without completing it.
+     *
+     * @return false if no session was in progress for this identifier.
+     */
+    public boolean cancel(K id) {
+        Session session = sessions.remove(id);
+        if (session == null) {
+            return false;
+        }
+        end(session);
+        return true;
+    }
+
+    private void end(Session session) {
+        HashedWheelTimer.Timeout timeout = session.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        session.context.destroy();
+        slots.release();
+    }
+
+    private void acquireSlot() throws IllegalStateException {
+        checkDestroyed();
+        if (!slots.tryAcquire()) {
+            throw new IllegalStateException("Too many sessions in progress.");
+        }
+    }
+
+    private void checkDestroyed() throws IllegalStateException {
+        if (destroyed) {
+            throw new IllegalStateException("The session manager was destroyed.");
+        }
+    }
+
+    /**
+     * Stops the timer and destroys all the sessions in progress. New sessions are rejected.
+     */
+    @Override
+    public void destroy() {
+        destroyed = true;
+        timer.stop();
+        for (Iterator<Map.Entry<K, Session>> it = sessions.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<K, Session> entry = it.next();
+            if (sessions.remove(entry.getKey(), entry.getValue())) {
+                end(entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public boolean isDestroyed() {
+        return destroyed;
+    }
+
+    private static final class Session {
+        final Spake2Context context;
+        /**
+         * Set right after the session is published, null until then
+         */
+        volatile HashedWheelTimer.Timeout timeout;
+
+        Session(Spake2Context context) {
+            this.context = context;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.spake2;
+
+/**
+ * Receives the intermediate values of the handshakes, for debugging against another implementation.
+ * <p>
+ * <b>The values include secrets.</b> Tracing is therefore compiled out unless the JVM is started with
+ * {@code -Dio.github.muntashirakon.crypto.spake2.trace=true}, in which case a tracer can be installed with
+ * {@link Spake2Context#setTracer(Spake2Tracer)}.
+ */
+public interface Spake2Tracer {
+    enum Value {
+        /**
+         * The ephemeral scalar, reduced and multiplied by the cofactor
+         */
+        PRIVATE_KEY,
+        /**
+         * Q*, the point received from the peer
+         */
+        PEER_MESSAGE,
+        /**
+         * The peer's mask, w·N for Alice or w·M for Bob
+         */
+        PEER_MASK,
+        /**
+         * Q_ext = Q* - mask, the peer's unmasked point
+         */
+        PEER_POINT,
+        /**
+         * The Diffie-Hellman shared secret
+         */
+        SHARED_SECRET,
+    }
+
+    /**
+     * Called synchronously on the thread running the handshake.
+     *
+     * @param role  Role of the context producing the value.
+     * @param value Which value this is.
+     * @param bytes A copy of the value, in its 32-byte encoding.
+     */
+    void trace(Spake2Role role, Value value, byte[] bytes);
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.spake2;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Keeps a {@link SecureRandom} per thread, seeded once, instead of creating and seeding one per handshake. Its output
+ * is fetched {@value #BUFFER_SIZE} bytes at a time, enough for 16 ephemeral keys, and every byte handed out is
+ * erased from the buffer.
+ */
+final class ThreadLocalEntropySource implements EntropySource {
+    static final ThreadLocalEntropySource INSTANCE = new ThreadLocalEntropySource();
+
+    static final int BUFFER_SIZE = 1024;
+
+    private static final ThreadLocal<Buffer> BUFFERS = new ThreadLocal<Buffer>() {
+        @Override
+        protected Buffer initialValue() {
+            return new Buffer();
+        }
+    };
+
+    private ThreadLocalEntropySource() {
+    }
+
+    @Override
+    public void nextBytes(byte[] bytes) {
+        BUFFERS.get().nextBytes(bytes);
+    }
+
+    private static final class Buffer {
+        private final SecureRandom random = new SecureRandom();
+        private final byte[] bytes = new byte[BUFFER_SIZE];
+        /**
+         * Offset of the first unused byte
+         */
+        private int position = BUFFER_SIZE;
+
+        void nextBytes(byte[] out) {
+            if (out.length > BUFFER_SIZE) {
+                random.nextBytes(out);
+                return;
+            }
+            int offset = 0;
+            while (offset < out.length) {
+                if (position == BUFFER_SIZE) {
+                    random.nextBytes(bytes);
+                    position = 0;
+                }
+                int n = Math.min(out.length - offset, BUFFER_SIZE - position);
+                System.arraycopy(bytes, position, out, offset, n);
+                Arrays.fill(bytes, position, position + n, (byte) 0);
+                position += n;
+                offset += n;
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.spake2;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Provider;
+
+/**
+ * Looks up a SHA-512 digest once per thread, and resets it before handing it out again.
+ */
+final class ThreadLocalHashProvider implements HashProvider {
+    static final ThreadLocalHashProvider DEFAULT = new ThreadLocalHashProvider(null);
+
+    /**
+     * Null for the most preferred one
+     */
+    private final Provider provider;
+    private final ThreadLocal<MessageDigest> digests = new ThreadLocal<>();
+
+    ThreadLocalHashProvider(Provider provider) {
+        this.provider = provider;
+    }
+
+    @Override
+    public MessageDigest getSha512() throws IllegalArgumentException {
+        MessageDigest sha = digests.get();
+        if (sha == null) {
+            try {
+                sha = provider == null ? MessageDigest.getInstance("SHA-512")
+                        : MessageDigest.getInstance("SHA-512", provider);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException("SHA-512 algorithm is not supported.");
+            }
+            digests.set(sha);
+        } else {
+            // In case the previous user did not complete its digest
+            sha.reset();
+        }
+        return sha;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.ed25519;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Generates the resource read by {@link Ed25519#createBasePoint(Curve, byte[])}.
+ */
+public final class BasePointTables {
+    private BasePointTables() {
+    }
+
+    /**
+     * @param resourcesDir The root of the resources.
+     */
+    public static void generate(File resourcesDir) throws IOException {
+        Curve curve = Ed25519.getSpec().getCurve();
+        // Always compute the tables rather than reading a previously generated resource
+        GroupElement B = curve.createPoint(Ed25519.getSpec().getB().toByteArray(), true);
+        write(resourcesDir, Ed25519.class, Ed25519.BASE_POINT_TABLES, Ed25519.encodeBasePointTables(B));
+    }
+
+    /**
+     * Writes a table resource of the given class.
+     */
+    public static void write(File resourcesDir, Class<?> owner, String name, byte[] table) throws IOException {
+        File dir = new File(resourcesDir, owner.getPackage().getName().replace('.', File.separatorChar));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+        try (OutputStream out = new FileOutputStream(new File(dir, name))) {
+            PrecomputedTables.write(out, table);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.spake2;
+
+import java.io.File;
+import java.io.IOException;
+
+import io.github.muntashirakon.crypto.ed25519.BasePointTables;
+
+/**
+ * Generates the precomputed tables bundled as resources, see
+ * {@link io.github.muntashirakon.crypto.ed25519.PrecomputedTables}.
+ * <p>
+ * Usage: {@code TableGenerator <resources dir>}
+ */
+public final class TableGenerator {
+    private TableGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: TableGenerator <resources dir>");
+        }
+        File resourcesDir = new File(args[0]);
+        BasePointTables.generate(resourcesDir);
+        BasePointTables.write(resourcesDir, Spake2Context.class, Spake2Context.TABLES, Spake2Context.encodeTables());
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2021 Muntashir Al-Islam
+ *
+ * Licensed according to the LICENSE file in this repository.
+ */
+
+package io.github.muntashirakon.crypto.ed25519;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class Ed25519FieldElement51Test {
+    private static long expectedMultiplyHigh(long x, long y) {
+        return BigInteger.valueOf(x).multiply(BigInteger.valueOf(y)).shiftRight(64).longValue();
+    }
+
+    private static void assertMultiplyHigh(long x, long y) {
+        String message = x + " * " + y;
+        long expected = expectedMultiplyHigh(x, y);
+        assertEquals(message, expected, Ed25519FieldElement51.multiplyHighFallback(x, y));
+        assertEquals(message, expected, Ed25519FieldElement51.multiplyHigh(x, y));
+    }
+
+    @Test
+    public void multiplyHighFallback() {
+        long mask51 = (1L << 51) - 1;
+        long[] edges = new long[]{
+                0, 1, -1, 2, -2, Long.MIN_VALUE, Long.MIN_VALUE + 1, Long.MAX_VALUE, Long.MAX_VALUE - 1,
+                0xFFFFFFFFL, 0x100000000L, -0xFFFFFFFFL, -0x100000000L,
+                mask51, 2 * mask51, 19 * mask51, 38 * mask51, 8 * 19 * mask51, -mask51,
+        };
+        for (long x : edges) {
+            for (long y : edges) {
+                assertMultiplyHigh(x, y);
+            }
+        }
+        Random random = new Random(0x5eed);
+        for (int i = 0; i < 100_000; ++i) {
+            long x = random.nextLong();
+            long y = random.nextLong();
+            assertMultiplyHigh(x, y);
+            // Limb-sized operands, as in the field arithmetic
+            assertMultiplyHigh(x & mask51, (y & mask51) * 19);
+        }
+    }
+}
@@ -6,25 +6,47 @@
 
 package io.github.muntashirakon.crypto.spake2;
 
+import com.sun.management.ThreadMXBean;
+
 import org.junit.Test;
 
+import java.lang.management.ManagementFactory;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.Provider;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import io.github.muntashirakon.crypto.ed25519.Curve;
 import io.github.muntashirakon.crypto.ed25519.Ed25519;
 import io.github.muntashirakon.crypto.ed25519.Ed25519CurveParameterSpec;
 import io.github.muntashirakon.crypto.ed25519.Ed25519Field;
+import io.github.muntashirakon.crypto.ed25519.Ed25519ScalarOps;
 import io.github.muntashirakon.crypto.ed25519.FieldElement;
+import io.github.muntashirakon.crypto.ed25519.FixedBaseMultiplier;
 import io.github.muntashirakon.crypto.ed25519.GroupElement;
+import io.github.muntashirakon.crypto.ed25519.PointWorkspace;
+import io.github.muntashirakon.crypto.ed25519.PrecompTable;
 import io.github.muntashirakon.crypto.ed25519.Utils;
 
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
 
 public class Spake25519Test {
-    private static final byte[] B_EIGHT = Utils.hexToBytes("0800000000000000000000000000000000000000000000000000000000000000");
-
     // Based on http://ed25519.cr.yp.to/python/ed25519.py
     private static GroupElement ed25519Edwards(GroupElement P, GroupElement Q) {
         Curve curve = P.getCurve();
@@ -116,89 +138,962 @@ public class Spake25519Test {
     }
 
     @Test
-    public void scalarTestCmov() {
-        Spake2Context.Scalar scalar = new Spake2Context.Scalar(Utils.hexToBytes(
-                "edd3f55c1a631258d69cf7a2def9de1400000000000000000000000000000010"));
-        Spake2Context.Scalar zero = new Spake2Context.Scalar();
-        assertEquals("0000000000000000000000000000000000000000000000000000000000000000",
-                Utils.bytesToHex(scalar.cmov(zero, 0).getBytes()));
-        assertEquals("0100000000000000000000000000000000000000000000000000000000000000",
-                Utils.bytesToHex(scalar.cmov(zero, 1).getBytes()));
-        assertEquals("0500000000000000040000000400000000000000000000000000000000000000",
-                Utils.bytesToHex(scalar.cmov(zero, 5).getBytes()));
-        assertEquals("0100000010000000100000001000000000000000000000000000000000000000",
-                Utils.bytesToHex(scalar.cmov(zero, 0x11).getBytes()));
-        assertEquals("2100000010000000100000001000000000000000000000000000000000000000",
-                Utils.bytesToHex(scalar.cmov(zero, 0x31).getBytes()));
-        assertEquals("6100000010000000500000005000000000000000000000000000000000000000",
-                Utils.bytesToHex(scalar.cmov(zero, 0x71).getBytes()));
-        assertEquals("e900000018000000d0000000d800000000000000000000000000000000000000",
-                Utils.bytesToHex(scalar.cmov(zero, 0xF9).getBytes()));
-    }
-
-    @Test
-    public void scalarTestCmov2() {
-        Spake2Context.Scalar scalar = new Spake2Context.Scalar(Utils.hexToBytes(
-                "edd3f55c1a631258d69cf7a2def9de1400000000000000000000000000000010"));
-        Spake2Context.Scalar base = new Spake2Context.Scalar();
-        base.copy(scalar.cmov(base, 0));
-        assertEquals("0000000000000000000000000000000000000000000000000000000000000000",
-                Utils.bytesToHex(base.getBytes()));
-        base.copy(scalar.cmov(base, 1));
-        assertEquals("0100000000000000000000000000000000000000000000000000000000000000",
-                Utils.bytesToHex(base.getBytes()));
-        base.copy(scalar.cmov(base, 5));
-        assertEquals("0500000000000000040000000400000000000000000000000000000000000000",
-                Utils.bytesToHex(base.getBytes()));
-        base.copy(scalar.cmov(base, 0x11));
-        assertEquals("0500000010000000140000001400000000000000000000000000000000000000",
-                Utils.bytesToHex(base.getBytes()));
-        base.copy(scalar.cmov(base, 0x31));
-        assertEquals("2500000010000000140000001400000000000000000000000000000000000000",
-                Utils.bytesToHex(base.getBytes()));
-        base.copy(scalar.cmov(base, 0x71));
-        assertEquals("6500000010000000540000005400000000000000000000000000000000000000",
-                Utils.bytesToHex(base.getBytes()));
-        base.copy(scalar.cmov(base, 0xF9));
-        assertEquals("ed00000018000000d4000000dc00000000000000000000000000000000000000",
-                Utils.bytesToHex(base.getBytes()));
-    }
-
-    @Test
-    public void scalarTestDbl() {
-        Spake2Context.Scalar scalar = new Spake2Context.Scalar(Utils.hexToBytes(
-                "edd3f55c1a631258d69cf7a2def9de1400000000000000000000000000000010"));
-        Spake2Context.Scalar eight = new Spake2Context.Scalar(B_EIGHT);
-        assertEquals("daa7ebb934c624b0ac39ef45bdf3bd2900000000000000000000000000000020",
-                Utils.bytesToHex(scalar.dbl().getBytes()));
-        assertEquals("1000000000000000000000000000000000000000000000000000000000000000",
-                Utils.bytesToHex(eight.dbl().getBytes()));
-        scalar.copy(scalar.dbl());
-        assertEquals("daa7ebb934c624b0ac39ef45bdf3bd2900000000000000000000000000000020",
-                Utils.bytesToHex(scalar.getBytes()));
-    }
-
-    @Test
-    public void scalarTestAdd() {
-        Spake2Context.Scalar scalar = new Spake2Context.Scalar(Utils.hexToBytes(
-                "edd3f55c1a631258d69cf7a2def9de1400000000000000000000000000000010"));
-        Spake2Context.Scalar eight = new Spake2Context.Scalar(B_EIGHT);
-        assertEquals("f5d3f55c1a631258d69cf7a2def9de1400000000000000000000000000000010",
-                Utils.bytesToHex(eight.add(scalar).getBytes()));
-        assertEquals("daa7ebb934c624b0ac39ef45bdf3bd2900000000000000000000000000000020",
-                Utils.bytesToHex(scalar.add(scalar).getBytes()));
+    public void derivePasswordScalar() {
+        Ed25519ScalarOps scalarOps = Ed25519.getSpec().getScalarOps();
+        BigInteger l = BigInteger.ONE.shiftLeft(252).add(new BigInteger("27742317777372353535851937790883648493"));
+        Random random = new Random(0x5eed);
+        byte[] hash = new byte[64];
+        byte[] reduced = new byte[32];
+        byte[] corrected = new byte[32];
+        byte[] order = new byte[32];
+        for (int i = 0; i < 64; ++i) {
+            random.nextBytes(hash);
+            Spake2Context.derivePasswordScalar(scalarOps, hash, reduced, order, false);
+            Spake2Context.derivePasswordScalar(scalarOps, hash, corrected, order, true);
+            BigInteger r = toBigInteger(reduced);
+            BigInteger c = toBigInteger(corrected);
+            assertEquals(toBigInteger(hash).mod(l), r);
+            // A multiple of eight, and of the same class modulo l
+            assertEquals(0, c.intValue() & 7);
+            assertEquals(r, c.mod(l));
+            assertTrue(c.compareTo(l.shiftLeft(3)) < 0);
+            assertArrayEquals(new byte[32], order);
+        }
+    }
+
+    /**
+     * @return The little-endian value of the given bytes.
+     */
+    private static BigInteger toBigInteger(byte[] bytes) {
+        byte[] be = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; ++i) {
+            be[i] = bytes[bytes.length - 1 - i];
+        }
+        return new BigInteger(1, be);
+    }
+
+    /**
+     * Compares the entries $2^{64k} P$ of BoringSSL's table with the rows of the multiplier, which start with
+     * $2^{wsj} P$.
+     */
+    private static void assertSameBase(GroupElement[] smallPrecomp, FixedBaseMultiplier multiplier) {
+        PrecompTable table = multiplier.getTable();
+        int bitsPerRow = multiplier.getWindowBits() * multiplier.getInterleave();
+        for (int k = 0; k < 4; ++k) {
+            int row = 64 * k / bitsPerRow;
+            assertEquals(smallPrecomp[(1 << k) - 1], table.get(row * table.getEntries()));
+        }
+    }
+
+    @Test
+    public void decodeMultiplierTable() {
+        FixedBaseMultiplier multiplier = Spake2Context.SPAKE_N_MULTIPLIER;
+        FixedBaseMultiplier decoded = new FixedBaseMultiplier(multiplier.getCurve(), multiplier.getWindowBits(),
+                multiplier.getInterleave(), multiplier.toByteArray(), 0);
+        assertArrayEquals(multiplier.getTable().toArray(), decoded.getTable().toArray());
     }
 
     @Test
     public void checkIfGeneratedValuesAreSameForN() {
         GroupElement[] ge = precomputeTable("edwards25519 point generation seed (N)");
-        assertArrayEquals(ge, Spake2Context.SPAKE_N_SMALL_PRECOMP);
+        assertSameBase(ge, Spake2Context.SPAKE_N_MULTIPLIER);
     }
 
     @Test
     public void checkIfGeneratedValuesAreSameForM() {
         GroupElement[] ge = precomputeTable("edwards25519 point generation seed (M)");
-        assertArrayEquals(ge, Spake2Context.SPAKE_M_SMALL_PRECOMP);
+        assertSameBase(ge, Spake2Context.SPAKE_M_MULTIPLIER);
+    }
+
+    @Test
+    public void scalarMultiplyVariableBase() {
+        GroupElement B = Ed25519.getSpec().getB();
+        Random random = new Random(0x5eed);
+        byte[] a = new byte[32];
+        byte[] b = new byte[32];
+        for (int i = 0; i < 32; i++) {
+            random.nextBytes(a);
+            a[31] &= 0x7F;
+            GroupElement P = B.scalarMultiply(a);
+            assertEquals(P, B.scalarMultiplyVariableBase(a));
+            // b * (a * B) = (a * b mod l) * B for a point which has no precomputed table
+            random.nextBytes(b);
+            b[31] &= 0x7F;
+            GroupElement Q = Ed25519.getSpec().getCurve().createPoint(P.toByteArray(), false);
+            byte[] ab = Ed25519.getSpec().getScalarOps().multiplyAndAdd(a, b, new byte[32]);
+            assertArrayEquals(B.scalarMultiply(ab).toByteArray(), Q.scalarMultiplyVariableBase(b).toByteArray());
+        }
+    }
+
+    @Test
+    public void fieldImplementationsAgree() {
+        Ed25519CurveParameterSpec spec25 = Ed25519.getSpec(Ed25519.FieldImplementation.RADIX_25_5);
+        Ed25519CurveParameterSpec spec51 = Ed25519.getSpec(Ed25519.FieldImplementation.RADIX_51);
+        Ed25519Field f25 = spec25.getCurve().getField();
+        Ed25519Field f51 = spec51.getCurve().getField();
+        Random random = new Random(0xf1e1d);
+        byte[] a = new byte[32];
+        byte[] b = new byte[32];
+        for (int i = 0; i < 100; i++) {
+            random.nextBytes(a);
+            random.nextBytes(b);
+            FieldElement a25 = f25.fromByteArray(a), b25 = f25.fromByteArray(b);
+            FieldElement a51 = f51.fromByteArray(a), b51 = f51.fromByteArray(b);
+            assertArrayEquals(a25.toByteArray(), a51.toByteArray());
+            assertArrayEquals(a25.add(b25).toByteArray(), a51.add(b51).toByteArray());
+            assertArrayEquals(a25.subtract(b25).toByteArray(), a51.subtract(b51).toByteArray());
+            assertArrayEquals(a25.negate().toByteArray(), a51.negate().toByteArray());
+            assertArrayEquals(a25.multiply(b25).toByteArray(), a51.multiply(b51).toByteArray());
+            assertArrayEquals(a25.squareAndDouble().toByteArray(), a51.squareAndDouble().toByteArray());
+            assertArrayEquals(a25.invert().toByteArray(), a51.invert().toByteArray());
+            assertArrayEquals(a25.pow22523().toByteArray(), a51.pow22523().toByteArray());
+            assertEquals(a25.isNegative(), a51.isNegative());
+            a[31] &= 0x7F;
+            assertArrayEquals(spec25.getB().scalarMultiply(a).toByteArray(),
+                    spec51.getB().scalarMultiply(a).toByteArray());
+        }
+    }
+
+    @Test
+    public void batchInversion() {
+        Ed25519CurveParameterSpec spec = Ed25519.getSpec();
+        Ed25519Field f = spec.getCurve().getField();
+        Random random = new Random(0xba7c);
+        byte[] a = new byte[32];
+        FieldElement[] z = new FieldElement[17];
+        GroupElement[] points = new GroupElement[z.length];
+        for (int i = 0; i < z.length; i++) {
+            random.nextBytes(a);
+            z[i] = f.fromByteArray(a);
+            a[31] &= 0x7F;
+            points[i] = spec.getB().scalarMultiply(a);
+        }
+        FieldElement[] recip = f.invertBatch(z);
+        byte[][] encoded = GroupElement.toByteArray(points);
+        for (int i = 0; i < z.length; i++) {
+            assertEquals(z[i].invert(), recip[i]);
+            assertArrayEquals(points[i].toByteArray(), encoded[i]);
+        }
+    }
+
+    @Test
+    public void fixedBaseMultiplier() {
+        Random random = new Random(0xf1b);
+        byte[] a = new byte[32];
+        for (Ed25519.FieldImplementation impl : Ed25519.FieldImplementation.values()) {
+            GroupElement P = Ed25519.getSpec(impl).getB().scalarMultiply(Utils.hexToBytes(
+                    "0900000000000000000000000000000000000000000000000000000000000000"));
+            int[][] configs = {{4, 2}, {1, 1}, {3, 5}, {5, 1}, {6, 4}, {8, 33}};
+            for (int[] config : configs) {
+                FixedBaseMultiplier multiplier = new FixedBaseMultiplier(P, config[0], config[1]);
+                for (int i = 0; i < 4; i++) {
+                    // Full 256-bit scalars, including the all-ones one
+                    random.nextBytes(a);
+                    if (i == 0) Arrays.fill(a, (byte) 0xFF);
+                    // Reference: double-and-add
+                    GroupElement expected = P.getCurve().getZero(GroupElement.Representation.P3);
+                    for (int bit = 255; bit >= 0; bit--) {
+                        expected = expected.dbl().toP3();
+                        if (Utils.bit(a, bit) == 1) expected = expected.add(P.toCached()).toP3();
+                    }
+                    assertArrayEquals(expected.toByteArray(), multiplier.scalarMultiply(a).toByteArray());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void precompTable() {
+        for (Ed25519.FieldImplementation impl : Ed25519.FieldImplementation.values()) {
+            Ed25519CurveParameterSpec spec = Ed25519.getSpec(impl);
+            Ed25519Field f = spec.getCurve().getField();
+            PrecompTable table = new FixedBaseMultiplier(spec.getB(), 3, 4).getTable();
+            assertEquals(4, table.getEntries());
+            // One int array instead of three field elements per entry
+            assertEquals(24 + 16 + 4L * table.getRows() * table.getEntries() * 3 * FieldElement.PACKED_SIZE,
+                    table.getRetainedBytes());
+            GroupElement t = GroupElement.precomp(spec.getCurve(), f.newElement(), f.newElement(), f.newElement());
+            for (int row = 0; row < table.getRows(); row++) {
+                for (int b = -table.getEntries(); b <= table.getEntries(); b++) {
+                    table.select(t, f.newElement(), row, b);
+                    GroupElement expected = b == 0 ? spec.getCurve().getZero(GroupElement.Representation.PRECOMP)
+                            : table.get(row * table.getEntries() + Math.abs(b) - 1);
+                    if (b < 0) {
+                        expected = GroupElement.precomp(spec.getCurve(), expected.getY(), expected.getX(),
+                                expected.getZ().negate());
+                    }
+                    assertEquals(expected.getX(), t.getX());
+                    assertEquals(expected.getY(), t.getY());
+                    assertEquals(expected.getZ(), t.getZ());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void pointWorkspace() {
+        Random random = new Random(0x3b);
+        byte[] a = new byte[32];
+        byte[] b = new byte[32];
+        for (Ed25519.FieldImplementation impl : Ed25519.FieldImplementation.values()) {
+            GroupElement B = Ed25519.getSpec(impl).getB();
+            Curve curve = B.getCurve();
+            GroupElement A = curve.createPoint(B.scalarMultiply(Utils.hexToBytes(
+                    "0b00000000000000000000000000000000000000000000000000000000000000")).toByteArray(), true);
+            // The same workspace is reused throughout
+            PointWorkspace ws = new PointWorkspace(curve);
+            for (int i = 0; i < 8; i++) {
+                random.nextBytes(a);
+                random.nextBytes(b);
+                a[31] &= 0x7F;
+                b[31] &= 0x7F;
+                GroupElement aA = A.scalarMultiplyVariableBase(a);
+                GroupElement bB = B.scalarMultiply(b);
+                byte[] expected = aA.add(bB.toCached()).toByteArray();
+                B.doubleScalarMultiplyVariableTime(A, a, b, ws);
+                assertArrayEquals(expected, ws.toByteArray());
+                // Decoding
+                assertTrue(ws.setFromBytesNegateVarTime(expected));
+                assertArrayEquals(expected, ws.toByteArray());
+                // aA - bB via the cached operand
+                ws.set(bB).toCached().set(aA).subCached().toP3();
+                assertArrayEquals(aA.sub(bB.toCached()).toByteArray(), ws.toByteArray());
+            }
+        }
+    }
+
+    @Test
+    public void jointFixedBaseMultiplier() {
+        Ed25519CurveParameterSpec spec = Ed25519.getSpec();
+        GroupElement P = spec.getB();
+        GroupElement Q = P.scalarMultiply(Utils.hexToBytes(
+                "0700000000000000000000000000000000000000000000000000000000000000"));
+        Random random = new Random(0x5a);
+        byte[] a = new byte[32];
+        byte[] b = new byte[32];
+        for (int[] config : new int[][]{{4, 2}, {5, 3}}) {
+            FixedBaseMultiplier mp = new FixedBaseMultiplier(P, config[0], config[1]);
+            FixedBaseMultiplier mq = new FixedBaseMultiplier(Q, config[0], config[1]);
+            for (int i = 0; i < 8; i++) {
+                random.nextBytes(a);
+                random.nextBytes(b);
+                GroupElement expected = mp.scalarMultiply(a).add(mq.scalarMultiply(b).toCached());
+                assertArrayEquals(expected.toByteArray(), mp.jointScalarMultiply(a, mq, b).toByteArray());
+            }
+        }
+        try {
+            new FixedBaseMultiplier(P, 4, 2).jointScalarMultiply(a, new FixedBaseMultiplier(Q, 4, 3), b);
+            fail("Multipliers with different table sizes must not be combined");
+        } catch (IllegalArgumentException ignore) {
+        }
+    }
+
+    @Test
+    public void knownAnswer() {
+        SPAKE2Run spake2 = new SPAKE2Run();
+        assertTrue(spake2.run());
+        assertTrue(spake2.keyMatches());
+        assertEquals("135d85fa69022bbc7445653e19047e5b6981aa5b9d309b0de6d2e704dfe1568c",
+                Utils.bytesToHex(spake2.aliceMsg));
+        assertEquals("d5bd4ead287e42f0a073adcb8dc46acc0630c4925fe1d43350e7441a8b29e03a",
+                Utils.bytesToHex(spake2.bobMsg));
+        assertEquals("059427b29f1aeaa08b73dd99f385a704dcd4abcc00f573b02b74346834c584f8" +
+                        "d5d44eeefcbbb13a444ca639626b1e62c37ee5f9640147da5d8a919d0a73cb5e",
+                Utils.bytesToHex(spake2.aliceKey));
+    }
+
+    @Test
+    public void entropySource() {
+        // Requests larger than the buffer, and spanning two buffers
+        byte[] large = new byte[ThreadLocalEntropySource.BUFFER_SIZE + 1];
+        EntropySource.getDefault().nextBytes(large);
+        byte[] previous = new byte[64];
+        byte[] bytes = new byte[64];
+        for (int i = 0; i < 2 * ThreadLocalEntropySource.BUFFER_SIZE / bytes.length + 1; i++) {
+            EntropySource.getDefault().nextBytes(bytes);
+            assertFalse(Arrays.equals(previous, bytes));
+            System.arraycopy(bytes, 0, previous, 0, bytes.length);
+        }
+        byte[] spanning = new byte[ThreadLocalEntropySource.BUFFER_SIZE - 1];
+        EntropySource.getDefault().nextBytes(spanning);
+        EntropySource.getDefault().nextBytes(bytes);
+
+        EntropySource.fixed(Utils.hexToBytes("0102")).nextBytes(bytes = new byte[3]);
+        assertArrayEquals(Utils.hexToBytes("010201"), bytes);
+    }
+
+    @Test
+    public void tracingDisabledByDefault() {
+        assumeFalse(Boolean.getBoolean(Spake2Context.TRACE_PROPERTY));
+        try {
+            Spake2Context.setTracer((role, value, bytes) -> fail());
+            fail("A tracer must not be installed unless tracing is enabled");
+        } catch (IllegalStateException ignore) {
+        }
+    }
+
+    @Test
+    public void reset() {
+        byte[] aliceName = "alice".getBytes(StandardCharsets.UTF_8);
+        byte[] bobName = "bob".getBytes(StandardCharsets.UTF_8);
+        byte[] password = "password".getBytes(StandardCharsets.UTF_8);
+        Spake2Context alice = new Spake2Context(Spake2Role.Alice, aliceName, bobName);
+        Spake2Context bob = new Spake2Context(Spake2Role.Bob, bobName, aliceName);
+        for (int i = 0; i < 4; i++) {
+            byte[] aliceMsg = alice.generateMessage(password);
+            byte[] bobMsg = bob.generateMessage(password);
+            assertArrayEquals(alice.processMessage(bobMsg), bob.processMessage(aliceMsg));
+            // Swap the roles, with names of another length
+            Spake2Context tmp = alice;
+            alice = bob;
+            bob = tmp;
+            aliceName = Arrays.copyOf(aliceName, aliceName.length + 1);
+            alice.reset(Spake2Role.Alice, aliceName, bobName);
+            bob.reset(Spake2Role.Bob, bobName, aliceName);
+        }
+        alice.destroy();
+        try {
+            alice.reset(Spake2Role.Alice, aliceName, bobName);
+            fail("A destroyed context must not be reused");
+        } catch (IllegalStateException ignore) {
+        }
+    }
+
+    @Test
+    public void callerBuffers() {
+        ReferenceHandshake ref = new ReferenceHandshake();
+
+        // Arrays at an offset
+        ref.alice.reset(Spake2Role.Alice, ref.aliceName, ref.bobName);
+        byte[] out = new byte[3 + Spake2Context.MAX_KEY_SIZE];
+        assertEquals(Spake2Context.MAX_MSG_SIZE, ref.alice.generateMessage(ref.password, out, 3));
+        assertArrayEquals(ref.aliceMsg, Arrays.copyOfRange(out, 3, 3 + Spake2Context.MAX_MSG_SIZE));
+        assertEquals(Spake2Context.MAX_KEY_SIZE, ref.alice.processMessage(ref.bobMsg, out, 3));
+        assertArrayEquals(ref.aliceKey, Arrays.copyOfRange(out, 3, out.length));
+        try {
+            ref.alice.reset(Spake2Role.Alice, ref.aliceName, ref.bobName);
+            ref.alice.generateMessage(ref.password, out, out.length - Spake2Context.MAX_MSG_SIZE + 1);
+            fail("The message must not be written past the end of the array");
+        } catch (IndexOutOfBoundsException ignore) {
+        }
+
+        // Direct and heap buffers
+        for (boolean direct : new boolean[]{true, false}) {
+            ref.bob.reset(Spake2Role.Bob, ref.bobName, ref.aliceName);
+            ByteBuffer msg = direct ? ByteBuffer.allocateDirect(40) : ByteBuffer.allocate(40);
+            msg.position(5);
+            ref.bob.generateMessage(ref.password, msg);
+            assertEquals(5 + Spake2Context.MAX_MSG_SIZE, msg.position());
+            msg.flip().position(5);
+            byte[] msgBytes = new byte[Spake2Context.MAX_MSG_SIZE];
+            msg.duplicate().get(msgBytes);
+            assertArrayEquals(ref.bobMsg, msgBytes);
+
+            ByteBuffer peerMsg = direct ? ByteBuffer.allocateDirect(32) : ByteBuffer.allocate(32);
+            peerMsg.put(ref.aliceMsg).flip();
+            ByteBuffer key = direct ? ByteBuffer.allocateDirect(70) : ByteBuffer.allocate(70);
+            key.position(6);
+            ref.bob.processMessage(peerMsg, key);
+            assertFalse(peerMsg.hasRemaining());
+            assertEquals(70, key.position());
+            byte[] keyBytes = new byte[Spake2Context.MAX_KEY_SIZE];
+            ((ByteBuffer) key.position(6)).get(keyBytes);
+            assertArrayEquals(ref.bobKey, keyBytes);
+        }
+
+        // An invalid message is not consumed
+        ref.bob.reset(Spake2Role.Bob, ref.bobName, ref.aliceName);
+        ref.bob.generateMessage(ref.password);
+        byte[] notOnCurve = new byte[32];
+        do {
+            notOnCurve[0]++;
+        } while (Ed25519.getSpec().getCurve().fromBytesNegateVarTime(notOnCurve) != null);
+        ByteBuffer invalid = ByteBuffer.wrap(notOnCurve);
+        try {
+            ref.bob.processMessage(invalid, out, 0);
+            fail("Point not on the curve");
+        } catch (IllegalArgumentException ignore) {
+        }
+        assertEquals(0, invalid.position());
+    }
+
+    @Test
+    public void derivedPassword() {
+        for (boolean disableHack : new boolean[]{false, true}) {
+            ReferenceHandshake ref = new ReferenceHandshake(disableHack);
+
+            for (boolean precomputeMasks : new boolean[]{false, true}) {
+                Spake2Password derived = Spake2Password.of(ref.password, precomputeMasks);
+                assertEquals(precomputeMasks, derived.hasMasks());
+                ref.alice.reset(Spake2Role.Alice, ref.aliceName, ref.bobName);
+                ref.bob.reset(Spake2Role.Bob, ref.bobName, ref.aliceName);
+                ref.alice.setDisablePasswordScalarHack(disableHack);
+                assertArrayEquals(ref.aliceMsg, ref.alice.generateMessage(derived));
+                assertArrayEquals(ref.bobMsg, ref.bob.generateMessage(derived));
+                // Handshakes in progress fall back to computing the masks
+                derived.destroy();
+                assertArrayEquals(ref.aliceKey, ref.alice.processMessage(ref.bobMsg));
+                assertArrayEquals(ref.bobKey, ref.bob.processMessage(ref.aliceMsg));
+            }
+        }
+
+        Spake2Password destroyed = Spake2Password.of("password".getBytes(StandardCharsets.UTF_8));
+        destroyed.destroy();
+        assertTrue(destroyed.isDestroyed());
+        try {
+            new Spake2Context(Spake2Role.Alice, "alice".getBytes(StandardCharsets.UTF_8),
+                    "bob".getBytes(StandardCharsets.UTF_8)).generateMessage(destroyed);
+            fail("A destroyed password must not be used");
+        } catch (IllegalStateException ignore) {
+        }
+    }
+
+    @Test
+    public void passwordCache() throws Exception {
+        Spake2PasswordCache cache = new Spake2PasswordCache(2, false);
+        Spake2Password a = cache.get("a".getBytes(StandardCharsets.UTF_8));
+        Spake2Password b = cache.get("b".getBytes(StandardCharsets.UTF_8));
+        assertSame(a, cache.get("a".getBytes(StandardCharsets.UTF_8)));
+        // b is the least recently used
+        Spake2Password c = cache.get("c".getBytes(StandardCharsets.UTF_8));
+        assertEquals(2, cache.size());
+        assertNotSame(b, cache.get("b".getBytes(StandardCharsets.UTF_8)));
+        // Evicted passwords remain usable by those holding them
+        assertFalse(a.isDestroyed() || b.isDestroyed());
+        new Spake2Context(Spake2Role.Alice, "alice".getBytes(StandardCharsets.UTF_8),
+                "bob".getBytes(StandardCharsets.UTF_8)).generateMessage(b);
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertFalse(c.isDestroyed());
+
+        // Threads evicting each other's passwords while handshaking with them
+        Spake2PasswordCache shared = new Spake2PasswordCache(2, true);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int seed = t;
+                results.add(pool.submit(() -> {
+                    ReferenceHandshake ref = new ReferenceHandshake();
+                    for (int i = 0; i < 20; i++) {
+                        byte[] password = ("password" + (seed + i) % 5).getBytes(StandardCharsets.UTF_8);
+                        Spake2Password derived = shared.get(password);
+                        ref.alice.reset(Spake2Role.Alice, ref.aliceName, ref.bobName);
+                        ref.bob.reset(Spake2Role.Bob, ref.bobName, ref.aliceName);
+                        byte[] aliceMsg = ref.alice.generateMessage(derived);
+                        byte[] bobMsg = ref.bob.generateMessage(password);
+                        assertArrayEquals(ref.alice.processMessage(bobMsg), ref.bob.processMessage(aliceMsg));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(2, shared.size());
+    }
+
+    @Test
+    public void ephemeralPool() throws InterruptedException {
+        ReferenceHandshake ref = new ReferenceHandshake();
+
+        EphemeralPool pool = new EphemeralPool(4, 1, ref.aliceEntropy, Thread::new);
+        try {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (pool.size() < pool.getDepth()) {
+                assertTrue("The pool was not filled in time", System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+            Spake2Password derived = Spake2Password.of(ref.password);
+            for (int i = 0; i < 2 * pool.getDepth(); i++) {
+                ref.alice.reset(Spake2Role.Alice, ref.aliceName, ref.bobName);
+                ref.bob.reset(Spake2Role.Bob, ref.bobName, ref.aliceName);
+                ref.alice.setEphemeralPool(pool);
+                // Whether the key comes from the pool or not, it is the same
+                assertArrayEquals(ref.aliceMsg, (i & 1) == 0 ? ref.alice.generateMessage(ref.password)
+                        : ref.alice.generateMessage(derived));
+                assertArrayEquals(ref.bobMsg, ref.bob.generateMessage(ref.password));
+                assertArrayEquals(ref.aliceKey, ref.alice.processMessage(ref.bobMsg));
+                assertArrayEquals(ref.bobKey, ref.bob.processMessage(ref.aliceMsg));
+            }
+        } finally {
+            pool.destroy();
+        }
+        assertEquals(0, pool.size());
+        ref.alice.reset(Spake2Role.Alice, ref.aliceName, ref.bobName);
+        assertArrayEquals(ref.aliceMsg, ref.alice.generateMessage(ref.password));
+
+        // Interrupting the background thread destroys the pool
+        Thread[] thread = new Thread[1];
+        EphemeralPool interrupted = new EphemeralPool(4, 1, ref.aliceEntropy, r -> thread[0] = new Thread(r));
+        thread[0].interrupt();
+        thread[0].join(10_000);
+        assertFalse(thread[0].isAlive());
+        assertTrue(interrupted.isDestroyed());
+        assertEquals(0, interrupted.size());
+    }
+
+    @Test
+    public void peerMaskModes() {
+        ReferenceHandshake ref = new ReferenceHandshake();
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Executor rejecting = command -> {
+            throw new RejectedExecutionException();
+        };
+        // Never runs anything, the contexts must compute the masks themselves
+        Executor dropping = command -> {
+        };
+        try {
+            for (Executor executor : new Executor[]{pool, rejecting, dropping}) {
+                for (Spake2Context.PeerMaskMode mode : Spake2Context.PeerMaskMode.values()) {
+                    ref.alice.setPeerMaskMode(mode, executor);
+                    ref.bob.setPeerMaskMode(mode, executor);
+                    for (int i = 0; i < 4; i++) {
+                        ref.alice.reset(Spake2Role.Alice, ref.aliceName, ref.bobName);
+                        ref.bob.reset(Spake2Role.Bob, ref.bobName, ref.aliceName);
+                        assertArrayEquals(ref.aliceMsg, ref.alice.generateMessage(ref.password));
+                        assertArrayEquals(ref.bobMsg, ref.bob.generateMessage(ref.password));
+                        assertArrayEquals(ref.aliceKey, ref.alice.processMessage(ref.bobMsg));
+                        assertArrayEquals(ref.bobKey, ref.bob.processMessage(ref.aliceMsg));
+                    }
+                    // Reset while the mask may still be computed
+                    ref.alice.reset(Spake2Role.Alice, ref.aliceName, ref.bobName);
+                    ref.alice.generateMessage(ref.password);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        try {
+            ref.alice.setPeerMaskMode(Spake2Context.PeerMaskMode.EAGER, null);
+            fail("An executor is required");
+        } catch (IllegalArgumentException ignore) {
+        }
+    }
+
+    @Test
+    public void lowLatency() {
+        ReferenceHandshake ref = new ReferenceHandshake();
+
+        Executor rejecting = command -> {
+            throw new RejectedExecutionException();
+        };
+        Executor dropping = command -> {
+        };
+        Spake2Password derived = Spake2Password.of(ref.password, false);
+        for (Executor executor : new Executor[]{ForkJoinPool.commonPool(), rejecting, dropping}) {
+            ref.alice.setLowLatencyExecutor(executor);
+            ref.bob.setLowLatencyExecutor(executor);
+            // Bob also computes the peer's mask eagerly
+            ref.bob.setPeerMaskMode(Spake2Context.PeerMaskMode.EAGER, executor);
+            for (int i = 0; i < 4; i++) {
+                ref.alice.reset(Spake2Role.Alice, ref.aliceName, ref.bobName);
+                ref.bob.reset(Spake2Role.Bob, ref.bobName, ref.aliceName);
+                assertArrayEquals(ref.aliceMsg, (i & 1) == 0 ? ref.alice.generateMessage(ref.password)
+                        : ref.alice.generateMessage(derived));
+                assertArrayEquals(ref.bobMsg, ref.bob.generateMessage(ref.password));
+                assertArrayEquals(ref.aliceKey, ref.alice.processMessage(ref.bobMsg));
+                assertArrayEquals(ref.bobKey, ref.bob.processMessage(ref.aliceMsg));
+            }
+        }
+    }
+
+    @Test
+    public void identity() {
+        for (int nameLength : new int[]{5, 50, 300}) {
+            byte[] aliceName = new byte[nameLength];
+            byte[] bobName = new byte[nameLength + 1];
+            Arrays.fill(aliceName, (byte) 'a');
+            Arrays.fill(bobName, (byte) 'b');
+            ReferenceHandshake ref = new ReferenceHandshake(aliceName, bobName, false);
+
+            Spake2Identity aliceIdentity = new Spake2Identity(Spake2Role.Alice, aliceName, bobName);
+            Spake2Identity bobIdentity = new Spake2Identity(Spake2Role.Bob, bobName, aliceName);
+            assertEquals(nameLength > 50, aliceIdentity.isPrefixCached());
+            Spake2Context alice = new Spake2Context(aliceIdentity, ref.aliceEntropy);
+            Spake2Context bob = new Spake2Context(bobIdentity, ref.bobEntropy);
+            for (int i = 0; i < 2; i++) {
+                assertArrayEquals(ref.aliceMsg, alice.generateMessage(ref.password));
+                assertArrayEquals(ref.bobMsg, bob.generateMessage(ref.password));
+                assertArrayEquals(ref.aliceKey, alice.processMessage(ref.bobMsg));
+                assertArrayEquals(ref.bobKey, bob.processMessage(ref.aliceMsg));
+                // Resetting with other names must leave the identity alone
+                alice.reset(Spake2Role.Alice, bobName, aliceName);
+                alice.reset(aliceIdentity);
+                bob.reset(bobIdentity);
+            }
+            assertArrayEquals(aliceName, aliceIdentity.getMyName());
+        }
+    }
+
+    @Test
+    public void hashProvider() throws Exception {
+        MessageDigest sha = HashProvider.getDefault().getSha512();
+        sha.update((byte) 1);
+        // Cached per thread, and reset
+        assertSame(sha, HashProvider.getDefault().getSha512());
+        assertArrayEquals(MessageDigest.getInstance("SHA-512").digest(), sha.digest());
+        MessageDigest[] other = new MessageDigest[1];
+        Thread thread = new Thread(() -> other[0] = HashProvider.getDefault().getSha512());
+        thread.start();
+        thread.join();
+        assertNotSame(sha, other[0]);
+
+        byte[] aliceName = "alice".getBytes(StandardCharsets.UTF_8);
+        byte[] bobName = "bob".getBytes(StandardCharsets.UTF_8);
+        byte[] password = "password".getBytes(StandardCharsets.UTF_8);
+        Spake2Context alice = new Spake2Context(Spake2Role.Alice, aliceName, bobName);
+        Spake2Context bob = new Spake2Context(Spake2Role.Bob, bobName, aliceName);
+        Provider provider = MessageDigest.getInstance("SHA-512").getProvider();
+        HashProvider specific = HashProvider.of(provider);
+        int[] calls = new int[1];
+        alice.setHashProvider(() -> {
+            calls[0]++;
+            return specific.getSha512();
+        });
+        bob.setHashProvider(specific);
+        byte[] aliceMsg = alice.generateMessage(password);
+        byte[] bobMsg = bob.generateMessage(password);
+        assertArrayEquals(alice.processMessage(bobMsg), bob.processMessage(aliceMsg));
+        assertEquals(2, calls[0]);
+        assertSame(provider, specific.getSha512().getProvider());
+
+        // Long names, whose prefix is cached by the identity only for its own provider
+        byte[] longName = new byte[128];
+        HashProvider counting = () -> {
+            calls[0]++;
+            return specific.getSha512();
+        };
+        Spake2Identity defaultIdentity = new Spake2Identity(Spake2Role.Alice, longName, bobName);
+        Spake2Identity countingIdentity = new Spake2Identity(Spake2Role.Alice, longName, bobName, counting);
+        assertSame(counting, countingIdentity.getHashProvider());
+        calls[0] = 0;
+        alice = new Spake2Context(defaultIdentity);
+        alice.setHashProvider(counting);
+        aliceMsg = alice.generateMessage(Spake2Password.of(password, true, counting));
+        assertEquals(1, calls[0]);
+        bob.reset(Spake2Role.Bob, bobName, longName);
+        bobMsg = bob.generateMessage(password);
+        assertArrayEquals(bob.processMessage(aliceMsg), alice.processMessage(bobMsg));
+        assertEquals(2, calls[0]);
+        // The provider of the identity is selected
+        alice = new Spake2Context(countingIdentity);
+        assertSame(counting, alice.getHashProvider());
+        aliceMsg = alice.generateMessage(new Spake2PasswordCache(1, false, counting).get(password));
+        assertEquals(3, calls[0]);
+        bob.reset(Spake2Role.Bob, bobName, longName);
+        bobMsg = bob.generateMessage(password);
+        // The cached prefix is cloned
+        assertArrayEquals(bob.processMessage(aliceMsg), alice.processMessage(bobMsg));
+        assertEquals(3, calls[0]);
+        alice.setHashProvider(specific);
+        alice.reset(countingIdentity);
+        assertSame(counting, alice.getHashProvider());
+        aliceMsg = alice.generateMessage(password);
+        assertEquals(4, calls[0]);
+        bob.reset(Spake2Role.Bob, bobName, longName);
+        bobMsg = bob.generateMessage(password);
+        assertArrayEquals(bob.processMessage(aliceMsg), alice.processMessage(bobMsg));
+        assertEquals(4, calls[0]);
+    }
+
+    @Test
+    public void sessionManager() throws InterruptedException {
+        byte[] clientName = "client".getBytes(StandardCharsets.UTF_8);
+        byte[] serverName = "server".getBytes(StandardCharsets.UTF_8);
+        byte[] password = "password".getBytes(StandardCharsets.UTF_8);
+        Spake2Identity server = new Spake2Identity(Spake2Role.Bob, serverName, clientName);
+        Spake2SessionManager<Integer> manager = new Spake2SessionManager<>(server, 2, 200);
+        try {
+            for (int i = 0; i < 3; i++) {
+                Spake2Context client = new Spake2Context(Spake2Role.Alice, clientName, serverName);
+                byte[] clientMsg = client.generateMessage(password);
+                byte[] serverMsg = i == 0 ? manager.begin(i, password) : manager.begin(i, Spake2Password.of(password));
+                assertEquals(1, manager.size());
+                assertArrayEquals(client.processMessage(serverMsg), manager.complete(i, clientMsg));
+                assertEquals(0, manager.size());
+            }
+            try {
+                manager.complete(0, new byte[32]);
+                fail("The session was already completed");
+            } catch (IllegalStateException ignore) {
+            }
+
+            manager.begin(1, password);
+            try {
+                manager.begin(1, password);
+                fail("Duplicate session");
+            } catch (IllegalArgumentException ignore) {
+            }
+            manager.begin(2, password);
+            try {
+                manager.begin(3, password);
+                fail("No free slot");
+            } catch (IllegalStateException ignore) {
+            }
+            assertTrue(manager.cancel(2));
+            assertFalse(manager.cancel(2));
+            Spake2Password derived = Spake2Password.of(password, false);
+            manager.begin(3, derived, 0);
+            try {
+                manager.begin(4, derived, 10);
+                fail("No slot became free");
+            } catch (IllegalStateException ignore) {
+            }
+
+            // Waits for the first session to expire
+            manager.begin(4, derived, 1000);
+            try {
+                manager.complete(1, new byte[32]);
+                fail("The session expired");
+            } catch (IllegalStateException ignore) {
+            }
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (manager.size() > 0) {
+                assertTrue("The sessions did not expire in time", System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+            manager.begin(5, password);
+        } finally {
+            manager.destroy();
+        }
+        assertEquals(0, manager.size());
+        try {
+            manager.begin(6, password);
+            fail("The manager was destroyed");
+        } catch (IllegalStateException ignore) {
+        }
+
+        // The sessions use the entropy source given and the hash provider of the identity
+        byte[] longName = new byte[128];
+        int[] calls = new int[1];
+        HashProvider counting = () -> {
+            calls[0]++;
+            return HashProvider.getDefault().getSha512();
+        };
+        EntropySource entropy = EntropySource.fixed(new byte[]{4, 5, 6});
+        manager = new Spake2SessionManager<>(new Spake2Identity(Spake2Role.Bob, longName, clientName, counting), 1,
+                10_000, Thread::new, entropy);
+        try {
+            Spake2Context client = new Spake2Context(Spake2Role.Alice, clientName, longName);
+            Spake2Context reference = new Spake2Context(Spake2Role.Bob, longName, clientName, entropy);
+            byte[] clientMsg = client.generateMessage(password);
+            calls[0] = 0;
+            byte[] serverMsg = manager.begin(0, password);
+            assertArrayEquals(reference.generateMessage(password), serverMsg);
+            assertEquals(1, calls[0]);
+            assertArrayEquals(client.processMessage(serverMsg), manager.complete(0, clientMsg));
+            // The cached prefix is cloned
+            assertEquals(1, calls[0]);
+        } finally {
+            manager.destroy();
+        }
+    }
+
+    @Test
+    public void asyncMessages() throws Exception {
+        ReferenceHandshake ref = new ReferenceHandshake();
+
+        ExecutorService executor = Spake2Context.newAsyncExecutor(1, 1);
+        try {
+            ref.alice.setAsyncExecutor(executor);
+            ref.bob.setAsyncExecutor(executor);
+            ref.alice.reset(Spake2Role.Alice, ref.aliceName, ref.bobName);
+            ref.bob.reset(Spake2Role.Bob, ref.bobName, ref.aliceName);
+            assertArrayEquals(ref.aliceMsg, ref.alice.generateMessageAsync(ref.password).get());
+            assertArrayEquals(ref.bobMsg, ref.bob.generateMessageAsync(Spake2Password.of(ref.password)).get());
+            // Chained, as on an event loop
+            assertArrayEquals(ref.aliceKey, ref.alice.processMessageAsync(ref.bobMsg)
+                    .thenCompose(key -> ref.alice.processMessageAsync(ref.bobMsg).handle((k, e) -> {
+                        assertTrue(e instanceof IllegalStateException);
+                        return key;
+                    })).get());
+            assertArrayEquals(ref.bobKey, ref.bob.processMessageAsync(ref.aliceMsg).get());
+
+            // Occupies the only thread, then the only place in the queue
+            CountDownLatch blocked = block(executor);
+            ref.alice.reset(Spake2Role.Alice, ref.aliceName, ref.bobName);
+            ref.bob.reset(Spake2Role.Bob, ref.bobName, ref.aliceName);
+            CompletableFuture<byte[]> pending = ref.alice.generateMessageAsync(ref.password);
+            assertFalse(pending.isDone());
+            // Operations in progress are protected from concurrent ones
+            assertAsyncFailure(IllegalStateException.class, ref.alice.generateMessageAsync(ref.password));
+            try {
+                ref.alice.processMessage(ref.bobMsg);
+                fail("The message is being generated");
+            } catch (IllegalStateException ignore) {
+            }
+            try {
+                ref.alice.reset(Spake2Role.Alice, ref.aliceName, ref.bobName);
+                fail("The message is being generated");
+            } catch (IllegalStateException ignore) {
+            }
+            // Bounded queue
+            assertAsyncFailure(RejectedExecutionException.class, ref.bob.generateMessageAsync(ref.password));
+            blocked.countDown();
+            assertArrayEquals(ref.aliceMsg, pending.get());
+            assertArrayEquals(ref.bobMsg, ref.bob.generateMessage(ref.password));
+            // y = 2 is not on the curve
+            byte[] invalid = new byte[32];
+            invalid[0] = 2;
+            assertAsyncFailure(IllegalArgumentException.class, ref.alice.processMessageAsync(invalid));
+            assertAsyncFailure(IllegalArgumentException.class, ref.alice.processMessageAsync(new byte[31]));
+
+            // Destroyed while in progress
+            blocked = block(executor);
+            pending = ref.alice.processMessageAsync(ref.bobMsg);
+            ref.alice.destroy();
+            blocked.countDown();
+            assertAsyncFailure(IllegalStateException.class, pending);
+            assertAsyncFailure(IllegalStateException.class, ref.alice.processMessageAsync(ref.bobMsg));
+            assertArrayEquals(new byte[32], ref.alice.getMyMsg());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return A latch releasing the thread of the executor, which is taken when this returns.
+     */
+    private static CountDownLatch block(Executor executor) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                blocked.await();
+            } catch (InterruptedException ignore) {
+            }
+        });
+        started.await();
+        return blocked;
+    }
+
+    private static void assertAsyncFailure(Class<? extends Throwable> expected, CompletableFuture<?> future)
+            throws InterruptedException {
+        try {
+            future.get();
+            fail("Expected " + expected.getSimpleName());
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().toString(), expected.isInstance(e.getCause()));
+        }
+    }
+
+    @Test
+    public void handshakeCodec() throws InterruptedException {
+        ReferenceHandshake ref = new ReferenceHandshake();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (Executor tasks : new Executor[]{Runnable::run, executor}) {
+                Spake2Handshake alice = new Spake2Handshake(new Spake2Context(Spake2Role.Alice, ref.aliceName,
+                        ref.bobName, ref.aliceEntropy), ref.password);
+                Spake2Handshake bob = new Spake2Handshake(new Spake2Context(Spake2Role.Bob, ref.bobName,
+                        ref.aliceName, ref.bobEntropy), Spake2Password.of(ref.password));
+                assertEquals(Spake2Handshake.Status.NEED_TASK, alice.getStatus());
+                assertTrue(alice.wantsRead());
+                assertFalse(alice.wantsWrite());
+                // One byte at a time in each direction
+                ByteBuffer aliceToBob = ByteBuffer.allocate(1);
+                ByteBuffer bobToAlice = ByteBuffer.allocate(1);
+                ByteBuffer aliceSent = ByteBuffer.allocate(64);
+                long deadline = System.currentTimeMillis() + 10_000;
+                while (alice.getStatus() != Spake2Handshake.Status.FINISHED
+                        || bob.getStatus() != Spake2Handshake.Status.FINISHED) {
+                    assertTrue("The handshake did not finish in time", System.currentTimeMillis() < deadline);
+                    for (Spake2Handshake handshake : new Spake2Handshake[]{alice, bob}) {
+                        Runnable task;
+                        while ((task = handshake.getDelegatedTask()) != null) {
+                            tasks.execute(task);
+                        }
+                    }
+                    alice.wrap(aliceToBob);
+                    aliceToBob.flip();
+                    aliceSent.put(aliceToBob.duplicate());
+                    bob.unwrap(aliceToBob);
+                    aliceToBob.compact();
+                    bob.wrap(bobToAlice);
+                    bobToAlice.flip();
+                    alice.unwrap(bobToAlice);
+                    bobToAlice.compact();
+                    Thread.yield();
+                }
+                aliceSent.flip();
+                assertEquals(ByteBuffer.wrap(ref.aliceMsg), aliceSent);
+                assertArrayEquals(ref.aliceKey, alice.getKey());
+                assertArrayEquals(ref.bobKey, bob.getKey());
+                assertFalse(alice.wantsRead() || alice.wantsWrite());
+                assertNull(alice.getDelegatedTask());
+                alice.destroy();
+                bob.destroy();
+                assertEquals(Spake2Handshake.Status.FAILED, alice.getStatus());
+                try {
+                    alice.getKey();
+                    fail("The handshake was destroyed");
+                } catch (IllegalStateException ignore) {
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // Invalid message, with the bytes following it left in the buffer
+        Spake2Handshake alice = new Spake2Handshake(new Spake2Context(Spake2Role.Alice, ref.aliceName, ref.bobName),
+                ref.password);
+        alice.getDelegatedTask().run();
+        assertEquals(Spake2Handshake.Status.NEED_WRAP, alice.getStatus());
+        ByteBuffer out = ByteBuffer.allocate(Spake2Context.MAX_MSG_SIZE);
+        assertEquals(Spake2Handshake.Status.NEED_UNWRAP, alice.wrap(out));
+        assertFalse(out.hasRemaining());
+        // y = 2 is not on the curve
+        ByteBuffer in = ByteBuffer.allocate(Spake2Context.MAX_MSG_SIZE + 1);
+        in.put(0, (byte) 2);
+        assertEquals(Spake2Handshake.Status.NEED_TASK, alice.unwrap(in));
+        assertEquals(1, in.remaining());
+        Runnable task = alice.getDelegatedTask();
+        assertNull("Already handed out", alice.getDelegatedTask());
+        task.run();
+        assertEquals(Spake2Handshake.Status.FAILED, alice.getStatus());
+        assertTrue(alice.getFailure() instanceof IllegalArgumentException);
+        try {
+            alice.unwrap(in);
+            fail("The handshake failed");
+        } catch (IllegalStateException ignore) {
+        }
+    }
+
+    @Test
+    public void handshakeAllocation() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean);
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        long threadId = Thread.currentThread().getId();
+
+        byte[] aliceName = "alice".getBytes(StandardCharsets.UTF_8);
+        byte[] bobName = "bob".getBytes(StandardCharsets.UTF_8);
+        byte[] password = "password".getBytes(StandardCharsets.UTF_8);
+        Spake2Context alice = new Spake2Context(Spake2Role.Alice, aliceName, bobName);
+        Spake2Context bob = new Spake2Context(Spake2Role.Bob, bobName, aliceName);
+        final int warmUp = 20;
+        final int handshakes = 64;
+        long start = 0;
+        for (int i = 0; i < warmUp + handshakes; i++) {
+            if (i == warmUp) {
+                start = threads.getThreadAllocatedBytes(threadId);
+            }
+            alice.reset(Spake2Role.Alice, aliceName, bobName);
+            bob.reset(Spake2Role.Bob, bobName, aliceName);
+            byte[] aliceMsg = alice.generateMessage(password);
+            byte[] bobMsg = bob.generateMessage(password);
+            alice.processMessage(bobMsg);
+            bob.processMessage(aliceMsg);
+        }
+        long perHandshake = (threads.getThreadAllocatedBytes(threadId) - start) / handshakes;
+        assertTrue("Allocated " + perHandshake + " bytes per handshake", perHandshake < 1024);
     }
 
     @Test
@@ -261,6 +1156,48 @@ public class Spake25519Test {
         }
     }
 
+    /**
+     * A handshake between plain contexts with fixed entropy, against which the other ways of running it are checked.
+     * The contexts are left in their final state for the tests to reset and reuse.
+     */
+    private static class ReferenceHandshake {
+        final byte[] aliceName;
+        final byte[] bobName;
+        final byte[] password = "password".getBytes(StandardCharsets.UTF_8);
+        final EntropySource aliceEntropy = EntropySource.fixed(new byte[]{1, 2, 3});
+        final EntropySource bobEntropy = EntropySource.fixed(new byte[]{4, 5, 6});
+        final Spake2Context alice;
+        final Spake2Context bob;
+        final byte[] aliceMsg;
+        final byte[] bobMsg;
+        final byte[] aliceKey;
+        final byte[] bobKey;
+
+        ReferenceHandshake() {
+            this(false);
+        }
+
+        /**
+         * @param disablePasswordScalarHack Set on Alice's context only.
+         */
+        ReferenceHandshake(boolean disablePasswordScalarHack) {
+            this("alice".getBytes(StandardCharsets.UTF_8), "bob".getBytes(StandardCharsets.UTF_8),
+                    disablePasswordScalarHack);
+        }
+
+        ReferenceHandshake(byte[] aliceName, byte[] bobName, boolean disablePasswordScalarHack) {
+            this.aliceName = aliceName;
+            this.bobName = bobName;
+            alice = new Spake2Context(Spake2Role.Alice, aliceName, bobName, aliceEntropy);
+            bob = new Spake2Context(Spake2Role.Bob, bobName, aliceName, bobEntropy);
+            alice.setDisablePasswordScalarHack(disablePasswordScalarHack);
+            aliceMsg = alice.generateMessage(password);
+            bobMsg = bob.generateMessage(password);
+            aliceKey = alice.processMessage(bobMsg);
+            bobKey = bob.processMessage(aliceMsg);
+        }
+    }
+
     // Based on https://android.googlesource.com/platform/external/boringssl/+/f9e0b0e17fabac35627f18f94a8954c3857784ac/src/crypto/curve25519/spake25519_test.cc
     private static class SPAKE2Run {
         private final Pair<String, String> aliceNames = new Pair<>("adb pair client\u0000", "adb pair server\u0000");
@@ -271,16 +1208,21 @@ public class Spake25519Test {
         private boolean bobDisablePasswordScalarHack = false;
         private int aliceCorruptMsgBit = -1;
         private boolean keyMatches = false;
+        private byte[] aliceMsg;
+        private byte[] bobMsg;
+        private byte[] aliceKey;
 
         private boolean run() {
             Spake2Context alice = new Spake2Context(
                     Spake2Role.Alice,
                     aliceNames.first.getBytes(StandardCharsets.UTF_8),
-                    aliceNames.second.getBytes(StandardCharsets.UTF_8));
+                    aliceNames.second.getBytes(StandardCharsets.UTF_8),
+                    EntropySource.fixed(Utils.hexToBytes("47f6c458e5f062db8427d2d9bb20c954a76d6943959756a18d11d45e1ad190f980a86d185a93ca1d3025c5febe3aac4045b34a39b1f511385ca97fc4332137f3")));
             Spake2Context bob = new Spake2Context(
                     Spake2Role.Bob,
                     bobNames.first.getBytes(StandardCharsets.UTF_8),
-                    bobNames.second.getBytes(StandardCharsets.UTF_8));
+                    bobNames.second.getBytes(StandardCharsets.UTF_8),
+                    EntropySource.fixed(Utils.hexToBytes("a6bf9f9bf7819e0ded8c2dd82a1aa38acb2f8a6403429cff33d64ea9c40439d5fd7029811a5f5a8f7c89c8b44ac0b421f6b24ca2ba18d2069995831730cd8c5a")));
 
             if (aliceDisablePasswordScalarHack) {
                 alice.setDisablePasswordScalarHack(true);
@@ -289,12 +1231,9 @@ public class Spake25519Test {
                 bob.setDisablePasswordScalarHack(true);
             }
 
-            byte[] aliceMsg;
-            byte[] bobMsg;
-
             try {
-                aliceMsg = alice.generateMessage(alicePassword, Utils.hexToBytes("47f6c458e5f062db8427d2d9bb20c954a76d6943959756a18d11d45e1ad190f980a86d185a93ca1d3025c5febe3aac4045b34a39b1f511385ca97fc4332137f3"));
-                bobMsg = bob.generateMessage(bobPassword, Utils.hexToBytes("a6bf9f9bf7819e0ded8c2dd82a1aa38acb2f8a6403429cff33d64ea9c40439d5fd7029811a5f5a8f7c89c8b44ac0b421f6b24ca2ba18d2069995831730cd8c5a"));
+                aliceMsg = alice.generateMessage(alicePassword);
+                bobMsg = bob.generateMessage(bobPassword);
             } catch (Exception e) {
                 return false;
             }
@@ -306,7 +1245,6 @@ public class Spake25519Test {
                 aliceMsg[aliceCorruptMsgBit / 8] ^= 1 << (aliceCorruptMsgBit & 7);
             }
 
-            byte[] aliceKey;
             byte[] bobKey;
             try {
                 aliceKey = alice.processMessage(bobMsg);